@@ -0,0 +1,81 @@
+package com.domainname.next.shippingapi.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.core.ReactiveDataAccessStrategy;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Repository;
+
+import com.domainname.next.shippingapi.repository.ShippingMethodQueryRepository.BoundQuery;
+
+import lombok.AllArgsConstructor;
+import reactor.core.publisher.Flux;
+
+/**
+ * Inserts a list of entities of one type with multi-row {@code insert ... values (...), (...) returning *}
+ * statements instead of the one statement per row of {@code saveAll}. Columns and values come from the entity
+ * mapping, exactly as for a regular insert, and generated ids are read back from the returned rows.
+ *
+ * Statements are split so that none binds more than {@code MAX_PARAMETERS} values, the Postgres limit.
+ */
+@Repository
+@AllArgsConstructor
+public class BatchInsertRepository {
+
+  private static final int MAX_PARAMETERS = 65535;
+
+  private final R2dbcEntityTemplate r2dbcEntityTemplate;
+
+  @SuppressWarnings("unchecked")
+  public <T> Flux<T> insertAll(Collection<T> entityCollection) {
+    if (entityCollection.isEmpty()) {
+      return Flux.empty();
+    }
+    List<T> entities = List.copyOf(entityCollection);
+    Class<T> type = (Class<T>) entities.get(0).getClass();
+    ReactiveDataAccessStrategy dataAccessStrategy = r2dbcEntityTemplate.getDataAccessStrategy();
+    RelationalPersistentEntity<?> persistentEntity = r2dbcEntityTemplate.getConverter().getMappingContext()
+        .getRequiredPersistentEntity(type);
+    List<OutboundRow> rows = entities.stream()
+        .map(dataAccessStrategy::getOutboundRow)
+        .toList();
+    // generated ids are left to the database, like the regular insert does
+    List<SqlIdentifier> columns = rows.get(0).keySet().stream()
+        .filter(column -> !(persistentEntity.hasIdProperty() && column.equals(persistentEntity.getIdColumn())
+            && rows.stream().allMatch(row -> row.get(column).getValue() == null)))
+        .toList();
+    String insert = "insert into " + dataAccessStrategy.toSql(persistentEntity.getTableName()) + " ("
+        + columns.stream().map(dataAccessStrategy::toSql).collect(Collectors.joining(",")) + ") values ";
+    int rowsPerStatement = Math.max(1, MAX_PARAMETERS / Math.max(1, columns.size()));
+
+    List<BoundQuery> statements = new ArrayList<>();
+    for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+      statements.add(buildInsert(insert, columns, rows.subList(from, Math.min(rows.size(), from + rowsPerStatement))));
+    }
+    return Flux.fromIterable(statements)
+        .concatMap(statement -> statement.bindTo(r2dbcEntityTemplate.getDatabaseClient())
+            .map((row, metadata) -> r2dbcEntityTemplate.getConverter().read(type, row, metadata))
+            .all());
+  }
+
+  private static BoundQuery buildInsert(String insert, List<SqlIdentifier> columns, List<OutboundRow> rows) {
+    BoundQuery query = new BoundQuery().append(insert);
+    for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+      query.append(rowIndex == 0 ? "(" : ",(");
+      for (int columnIndex = 0; columnIndex < columns.size(); columnIndex++) {
+        String name = "p" + rowIndex + "_" + columnIndex;
+        Parameter value = rows.get(rowIndex).get(columns.get(columnIndex));
+        query.append(columnIndex == 0 ? ":" : ",:").append(name).bind(name, value);
+      }
+      query.append(")");
+    }
+    return query.append(" returning *");
+  }
+}
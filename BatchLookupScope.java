@@ -0,0 +1,56 @@
+package com.domainname.next.shippingapi.util;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * Shares identical lookups between the requests of one batch. The batch puts a scope into the Reactor Context, and
+ * every lookup that goes through {@link #shared} with the same kind and key is subscribed only once for the whole
+ * batch, whatever the caching settings of the lookup itself. Outside of a batch the lookup runs as is.
+ *
+ * Failed lookups are dropped from the scope, so that a later request of the batch tries again.
+ */
+public final class BatchLookupScope {
+
+  private final Map<String, Mono<?>> lookups = new ConcurrentHashMap<>();
+
+  public static Optional<BatchLookupScope> from(ContextView context) {
+    return context.getOrEmpty(BatchLookupScope.class);
+  }
+
+  public static <T> Mono<T> shared(String kind, String key, Supplier<Mono<T>> lookup) {
+    return Mono.deferContextual(context -> from(context)
+        .map(scope -> scope.share(kind + "|" + key, lookup))
+        .orElseGet(() -> Mono.defer(lookup)));
+  }
+
+  /**
+   * Same as {@link #shared(String, String, Supplier)} for keys that are costly to compute, such as a fingerprint of a
+   * request body: the key is only computed within a batch, and a lookup without a key is not shared.
+   */
+  public static <T> Mono<T> shared(String kind, Supplier<Optional<String>> key, Supplier<Mono<T>> lookup) {
+    return Mono.deferContextual(context -> from(context)
+        .flatMap(scope -> key.get().map(value -> scope.share(kind + "|" + value, lookup)))
+        .orElseGet(() -> Mono.defer(lookup)));
+  }
+
+  public int size() {
+    return lookups.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Mono<T> share(String key, Supplier<Mono<T>> lookup) {
+    return (Mono<T>) lookups.computeIfAbsent(key, ignored -> {
+      Mono<?>[] shared = new Mono<?>[1];
+      shared[0] = Mono.defer(lookup)
+          .doOnError(throwable -> lookups.remove(key, shared[0]))
+          .cache();
+      return shared[0];
+    });
+  }
+}
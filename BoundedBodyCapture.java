@@ -0,0 +1,63 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+/**
+ * Keeps a copy of at most {@code maxBytes} of a body that is streamed through, without consuming or replacing the
+ * streamed buffers. The copy is only decoded when {@link #toString()} is called, i.e. when it is actually logged.
+ */
+public class BoundedBodyCapture {
+
+  private static final String TRUNCATED = "...";
+  private static final int INITIAL_SIZE = 512;
+
+  private final int maxBytes;
+  private byte[] content;
+  private int length;
+  private boolean truncated;
+
+  public BoundedBodyCapture(int maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return the number of bytes copied
+   */
+  public int capture(DataBuffer dataBuffer) {
+    // asByteBuffer shares the content and leaves the read position of the streamed buffer alone
+    return capture(dataBuffer.asByteBuffer());
+  }
+
+  public int capture(ByteBuffer buffer) {
+    int readable = buffer.remaining();
+    int count = Math.min(readable, maxBytes - length);
+    truncated |= count < readable;
+    if (count <= 0) {
+      return 0;
+    }
+    if (content == null || content.length < length + count) {
+      content = Arrays.copyOf(content == null ? new byte[0] : content,
+          Math.min(maxBytes, Math.max(length + count, 2 * (content == null ? INITIAL_SIZE : content.length))));
+    }
+    buffer.duplicate().get(content, length, count);
+    length += count;
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  @Override
+  public String toString() {
+    if (length == 0) {
+      return "";
+    }
+    String body = new String(content, 0, length, StandardCharsets.UTF_8);
+    return truncated ? body + TRUNCATED : body;
+  }
+}
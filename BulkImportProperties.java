@@ -0,0 +1,14 @@
+package com.domainname.next.shippingapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "bulk-import")
+public class BulkImportProperties {
+
+  // records validated and written per transaction
+  private Integer batchSize = 500;
+}
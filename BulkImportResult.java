@@ -0,0 +1,24 @@
+package com.domainname.next.shippingapi.resources.response;
+
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Result of one record of a bulk import, keyed by its position in the imported stream. A created record carries the
+ * id it was saved with, a rejected one the status and detail it would have been answered with on its own.
+ */
+@Builder
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportResult {
+
+  private final long index;
+  private final int status;
+  private final UUID id;
+  private final String detail;
+
+}
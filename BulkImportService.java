@@ -0,0 +1,317 @@
+package com.domainname.next.shippingapi.service;
+
+import static com.domainname.next.shippingapi.constant.ErrorConstants.CONSTRAINT_VIOLATION_CODE;
+import static com.domainname.next.shippingapi.constant.ErrorConstants.DUPLICATE_CARRIER_STRING;
+import static com.domainname.next.shippingapi.constant.ErrorConstants.INTERNAL_ERROR_CODE;
+import static com.domainname.next.shippingapi.constant.ErrorConstants.INVALID_FIELD_CODE;
+import static com.domainname.next.shippingapi.constant.ErrorConstants.SITEID_NOT_FOUND_CODE;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.CollectionUtils;
+
+import com.domainname.next.shippingapi.config.BulkImportProperties;
+import com.domainname.next.shippingapi.converter.FulfillmentMethodPostRequestConverter;
+import com.domainname.next.shippingapi.converter.ShippingMethodPostRequestConverter;
+import com.domainname.next.shippingapi.entity.Channel;
+import com.domainname.next.shippingapi.entity.FulfillmentMethods;
+import com.domainname.next.shippingapi.entity.ProductType;
+import com.domainname.next.shippingapi.entity.ShippingMethodCarrierString;
+import com.domainname.next.shippingapi.entity.ShippingMethods;
+import com.domainname.next.shippingapi.entity.SiteId;
+import com.domainname.next.shippingapi.repository.BatchInsertRepository;
+import com.domainname.next.shippingapi.repository.ChannelRepository;
+import com.domainname.next.shippingapi.repository.ProductTypeRepository;
+import com.domainname.next.shippingapi.repository.ShippingMethodQueryRepository;
+import com.domainname.next.shippingapi.repository.SiteIdRepository;
+import com.domainname.next.shippingapi.resources.request.FulfillmentMethodPostRequest;
+import com.domainname.next.shippingapi.resources.request.ShippingMethodPostRequest;
+import com.domainname.next.shippingapi.resources.response.BulkImportResult;
+import com.domainname.next.shippingapi.util.BatchLookupScope;
+import com.domainname.next.shippingapi.util.MessageHelper;
+import com.domainname.next.shippingapi.util.ShippingUtil;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+/**
+ * Imports shipping and fulfillment methods from a stream of records. Records are taken in batches of
+ * {@code bulk-import.batch-size} and the next batch is only requested once the previous one is written, so an import
+ * never sits in memory as a whole.
+ *
+ * Records are validated in memory: bean validation, the site, looked up once per import, and for shipping methods
+ * the uniqueness check of a single create, run against the site's shipping methods as loaded once plus the records
+ * accepted before. The accepted records of a batch are written with multi-row inserts in one transaction, and only
+ * count for the uniqueness of later batches once that transaction is committed. One result is emitted per record,
+ * in input order, and a rejected record does not stop the import.
+ */
+@Service
+@Slf4j
+@AllArgsConstructor
+public class BulkImportService {
+
+  private static final String SITE_ID_LOOKUP = "siteId";
+  private static final String UNIQUENESS_LOOKUP = "shippingMethodUniqueness";
+
+  private final BulkImportProperties properties;
+  private final Validator validator;
+  private final MessageHelper messageHelper;
+  private final SiteIdRepository siteIdRepository;
+  private final ChannelRepository channelRepository;
+  private final ProductTypeRepository productTypeRepository;
+  private final ShippingMethodQueryRepository shippingMethodQueryRepository;
+  private final BatchInsertRepository batchInsertRepository;
+  private final ShippingMethodPostRequestConverter shippingMethodPostRequestConverter;
+  private final FulfillmentMethodPostRequestConverter fulfillmentMethodPostRequestConverter;
+  private final TransactionalOperator transactionalOperator;
+  private final SiteConfigurationCache siteConfigurationCache;
+
+  public Flux<BulkImportResult> importShippingMethods(Flux<ShippingMethodPostRequest> shippingRequests) {
+    return importRecords(shippingRequests, ShippingMethodPostRequest::getSiteId, this::isUnique,
+        this::saveShippingMethods,
+        siteId -> uniqueness(siteId).doOnNext(ShippingMethodUniqueness::commit).then(),
+        siteId -> uniqueness(siteId).doOnNext(ShippingMethodUniqueness::rollback).then());
+  }
+
+  public Flux<BulkImportResult> importFulfillmentMethods(Flux<FulfillmentMethodPostRequest> fulfillmentRequests) {
+    return importRecords(fulfillmentRequests, FulfillmentMethodPostRequest::getSiteId,
+        (fulfillmentRequest, siteId) -> Mono.just(true), this::saveFulfillmentMethods,
+        siteId -> Mono.fromRunnable(() -> siteConfigurationCache.invalidate(siteId.getName())),
+        siteId -> Mono.empty());
+  }
+
+  private <R> Flux<BulkImportResult> importRecords(Flux<R> records, Function<R, String> siteName,
+      BiFunction<R, SiteId, Mono<Boolean>> unique, Function<List<ImportRecord<R>>, Mono<List<UUID>>> save,
+      Function<SiteId, Mono<Void>> committed, Function<SiteId, Mono<Void>> rolledBack) {
+    BatchLookupScope scope = new BatchLookupScope();
+    // no prefetch, the next batch is only buffered once the previous one is written
+    return records.index()
+        .buffer(properties.getBatchSize())
+        .concatMap(batch -> importBatch(batch, siteName, unique, save, committed, rolledBack), 0)
+        .contextWrite(context -> context.put(BatchLookupScope.class, scope));
+  }
+
+  // records are validated one after the other, so that each one is checked against those accepted before it
+  private <R> Flux<BulkImportResult> importBatch(List<Tuple2<Long, R>> batch, Function<R, String> siteName,
+      BiFunction<R, SiteId, Mono<Boolean>> unique, Function<List<ImportRecord<R>>, Mono<List<UUID>>> save,
+      Function<SiteId, Mono<Void>> committed, Function<SiteId, Mono<Void>> rolledBack) {
+    return Flux.fromIterable(batch)
+        .concatMap(record -> validate(record.getT1(), record.getT2(), siteName, unique))
+        .collectList()
+        .flatMap(records -> write(records, save, committed, rolledBack))
+        .flatMapIterable(Function.identity());
+  }
+
+  private <R> Mono<ImportRecord<R>> validate(long index, R request, Function<R, String> siteName,
+      BiFunction<R, SiteId, Mono<Boolean>> unique) {
+    Optional<ConstraintViolation<R>> violation = validator.validate(request).stream()
+        .min(Comparator.comparing((ConstraintViolation<R> constraintViolation) ->
+                constraintViolation.getPropertyPath().toString())
+            .thenComparing(ConstraintViolation::getMessage));
+    if (violation.isPresent()) {
+      return Mono.just(ImportRecord.rejected(invalid(index, violation.get())));
+    }
+    String name = siteName.apply(request);
+    return BatchLookupScope.shared(SITE_ID_LOOKUP, name, () -> siteIdRepository.findByName(name))
+        .flatMap(siteId -> unique.apply(request, siteId)
+            .map(isUnique -> isUnique ? ImportRecord.accepted(index, request, siteId)
+                : ImportRecord.<R>rejected(result(index, HttpStatus.CONFLICT, CONSTRAINT_VIOLATION_CODE))))
+        .defaultIfEmpty(ImportRecord.rejected(result(index, HttpStatus.NOT_FOUND, SITEID_NOT_FOUND_CODE, name)));
+  }
+
+  // committed and rolledBack run once per site of the accepted records, after the transaction has ended
+  private <R> Mono<List<BulkImportResult>> write(List<ImportRecord<R>> records,
+      Function<List<ImportRecord<R>>, Mono<List<UUID>>> save, Function<SiteId, Mono<Void>> committed,
+      Function<SiteId, Mono<Void>> rolledBack) {
+    List<ImportRecord<R>> accepted = records.stream().filter(ImportRecord::isAccepted).toList();
+    if (accepted.isEmpty()) {
+      return Mono.just(records.stream().map(ImportRecord::getRejection).toList());
+    }
+    Flux<SiteId> sites = Flux.fromIterable(accepted.stream()
+        .map(ImportRecord::getSiteId)
+        .collect(Collectors.toMap(SiteId::getId, Function.identity(), (first, second) -> first))
+        .values());
+    return save.apply(accepted)
+        .as(transactionalOperator::transactional)
+        .flatMap(ids -> sites.concatMap(committed).then(Mono.fromSupplier(() -> {
+          Iterator<UUID> savedIds = ids.iterator();
+          return records.stream()
+              .map(record -> record.isAccepted() ? created(record.getIndex(), savedIds.next()) : record.getRejection())
+              .toList();
+        })))
+        .onErrorResume(throwable -> {
+          log.error("Error in writing a bulk import batch of {} records", accepted.size(), throwable);
+          return sites.concatMap(rolledBack).then(Mono.fromSupplier(() -> records.stream()
+              .map(record -> record.isAccepted() ? failed(record.getIndex(), throwable) : record.getRejection())
+              .toList()));
+        });
+  }
+
+  private Mono<Boolean> isUnique(ShippingMethodPostRequest shippingRequest, SiteId siteId) {
+    return uniqueness(siteId)
+        .map(uniqueness -> uniqueness.add(shippingRequest.getChannels(), shippingRequest.getProductTypes(),
+            shippingRequest.getCarrierStringRecords(), shippingRequest.getCarrierService()));
+  }
+
+  private Mono<ShippingMethodUniqueness> uniqueness(SiteId siteId) {
+    return BatchLookupScope.shared(UNIQUENESS_LOOKUP, String.valueOf(siteId.getId()),
+        () -> shippingMethodQueryRepository.findShippingMethodOptionsBySiteId(siteId.getId())
+            .collectList()
+            .map(ShippingMethodUniqueness::of));
+  }
+
+  /**
+   * Inserts the shipping methods of a batch with one statement and their channel, product type and carrier string
+   * mappings with one statement per kind. The returned rows are paired with their requests by the shipping method
+   * id the converter assigned, whatever order the database returns them in.
+   */
+  private Mono<List<UUID>> saveShippingMethods(List<ImportRecord<ShippingMethodPostRequest>> records) {
+    List<ShippingMethodPostRequest> shippingRequests = records.stream().map(ImportRecord::getRequest).toList();
+    List<ShippingMethods> shippingMethods = records.stream()
+        .map(record -> shippingMethodPostRequestConverter.apply(record.getRequest(), record.getSiteId()))
+        .toList();
+    return Mono.zip(findChannels(shippingRequests), findProductTypes(shippingRequests))
+        .flatMap(mappings -> batchInsertRepository.insertAll(shippingMethods)
+            .collectMap(ShippingMethods::getShippingMethodId)
+            .flatMap(savedById -> {
+              List<ShippingMethods> saved = shippingMethods.stream()
+                  .map(shippingMethod -> savedById.get(shippingMethod.getShippingMethodId()))
+                  .filter(Objects::nonNull)
+                  .toList();
+              if (saved.size() != shippingMethods.size()) {
+                return Mono.error(new IllegalStateException("Inserted " + savedById.size() + " of "
+                    + shippingMethods.size() + " shipping methods of a bulk import batch"));
+              }
+              return saveMappings(shippingRequests, saved, mappings.getT1(), mappings.getT2())
+                  .thenReturn(saved.stream().map(ShippingMethods::getShippingMethodId).toList());
+            }));
+  }
+
+  private Mono<Void> saveMappings(List<ShippingMethodPostRequest> shippingRequests, List<ShippingMethods> saved,
+      Map<String, Channel> channels, Map<String, ProductType> productTypes) {
+    return insertMappings(saved.size(), index -> shippingMethodPostRequestConverter.buildChannel(saved.get(index),
+            pick(channels, channelNames(shippingRequests.get(index)))))
+        .then(insertMappings(saved.size(), index -> shippingMethodPostRequestConverter.buildProductType(
+            saved.get(index), pick(productTypes, shippingRequests.get(index).getProductTypes()))))
+        .then(this.<ShippingMethodCarrierString>insertMappings(saved.size(),
+            index -> CollectionUtils.isEmpty(shippingRequests.get(index).getCarrierStringRecords()) ? Mono.empty()
+                : shippingMethodPostRequestConverter.buildCarrierString(shippingRequests.get(index),
+                    saved.get(index))));
+  }
+
+  private <M> Mono<Void> insertMappings(int count, IntFunction<Mono<List<M>>> mappings) {
+    return Flux.range(0, count)
+        .concatMap(mappings::apply)
+        .flatMapIterable(Function.identity())
+        .collectList()
+        .flatMap(rows -> batchInsertRepository.insertAll(rows).then());
+  }
+
+  // channels and product types of a whole batch are looked up at once, unknown names are skipped like on create
+  private Mono<Map<String, Channel>> findChannels(List<ShippingMethodPostRequest> shippingRequests) {
+    return channelRepository.findByChannelNameIn(shippingRequests.stream()
+            .flatMap(shippingRequest -> channelNames(shippingRequest).stream())
+            .distinct()
+            .toList())
+        .collectMap(Channel::getChannelName);
+  }
+
+  private Mono<Map<String, ProductType>> findProductTypes(List<ShippingMethodPostRequest> shippingRequests) {
+    return productTypeRepository.findByProductTypeNameIn(shippingRequests.stream()
+            .flatMap(shippingRequest -> shippingRequest.getProductTypes().stream())
+            .distinct()
+            .toList())
+        .collectMap(ProductType::getProductTypeName);
+  }
+
+  private static List<String> channelNames(ShippingMethodPostRequest shippingRequest) {
+    return ShippingUtil.getEnums(com.domainname.next.shippingapi.enums.Channel.class, shippingRequest.getChannels());
+  }
+
+  private static <T> List<T> pick(Map<String, T> values, List<String> names) {
+    return names.stream().map(values::get).filter(Objects::nonNull).toList();
+  }
+
+  private Mono<List<UUID>> saveFulfillmentMethods(List<ImportRecord<FulfillmentMethodPostRequest>> records) {
+    return batchInsertRepository.insertAll(records.stream()
+            .map(record -> fulfillmentMethodPostRequestConverter.apply(record.getRequest(), record.getSiteId()))
+            .toList())
+        .map(FulfillmentMethods::getFulfillmentId)
+        .collectList();
+  }
+
+  private BulkImportResult invalid(long index, ConstraintViolation<?> violation) {
+    String errorCode = violation.getMessage();
+    HttpStatus status = INVALID_FIELD_CODE.equals(errorCode) || DUPLICATE_CARRIER_STRING.equals(errorCode)
+        ? HttpStatus.UNPROCESSABLE_ENTITY
+        : HttpStatus.BAD_REQUEST;
+    return result(index, status, errorCode, violation.getPropertyPath().toString());
+  }
+
+  private BulkImportResult failed(long index, Throwable throwable) {
+    return throwable instanceof DataIntegrityViolationException
+        ? result(index, HttpStatus.CONFLICT, CONSTRAINT_VIOLATION_CODE)
+        : result(index, HttpStatus.INTERNAL_SERVER_ERROR, INTERNAL_ERROR_CODE);
+  }
+
+  private static BulkImportResult created(long index, UUID id) {
+    return BulkImportResult.builder()
+        .index(index)
+        .status(HttpStatus.CREATED.value())
+        .id(id)
+        .build();
+  }
+
+  private BulkImportResult result(long index, HttpStatus status, String messageCode, String... args) {
+    return BulkImportResult.builder()
+        .index(index)
+        .status(status.value())
+        .detail(messageHelper.buildMessage(messageCode, args))
+        .build();
+  }
+
+  @Getter
+  @AllArgsConstructor(access = AccessLevel.PRIVATE)
+  private static final class ImportRecord<R> {
+
+    private final long index;
+    private final R request;
+    private final SiteId siteId;
+    // result of a record rejected before the write, null when accepted
+    private final BulkImportResult rejection;
+
+    static <R> ImportRecord<R> accepted(long index, R request, SiteId siteId) {
+      return new ImportRecord<>(index, request, siteId, null);
+    }
+
+    static <R> ImportRecord<R> rejected(BulkImportResult rejection) {
+      return new ImportRecord<>(rejection.getIndex(), null, null, rejection);
+    }
+
+    boolean isAccepted() {
+      return rejection == null;
+    }
+  }
+}
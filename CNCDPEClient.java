@@ -2,6 +2,9 @@ package com.domainname.next.shippingapi.client;
 
 import com.domainname.next.shippingapi.client.request.cnc.dpe.CNCDPERequest;
 import com.domainname.next.shippingapi.client.response.cnc.dpe.CNCDPEResponse;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
+import com.domainname.next.shippingapi.util.BatchLookupScope;
+import com.domainname.next.shippingapi.util.RequestFingerprint;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -19,15 +22,26 @@ import reactor.core.publisher.Mono;
 @ConfigurationProperties(prefix = "cnc-dpe")
 public class CNCDPEClient extends Client {
 
+  private static final String LOOKUP = "cnc-dpe";
+
   @Autowired
   @Qualifier("dpeWebClient")
   private WebClient webClient;
 
+  @Autowired
+  private RequestFingerprint requestFingerprint;
+
   @Value("${cnc-dpe.api-id}")
   private String apiId;
 
+  // identical requests of one batch are sent once
   public Mono<CNCDPEResponse> getCNCDPE(CNCDPERequest cncDPERequest) {
-    log.info("Calling Click And Collect Delivery Promise Service {}", cncDPERequest.getOrganizationCode());
+    return BatchLookupScope.shared(LOOKUP, () -> requestFingerprint.of(cncDPERequest),
+        () -> requestCNCDPE(cncDPERequest));
+  }
+
+  private Mono<CNCDPEResponse> requestCNCDPE(CNCDPERequest cncDPERequest) {
+    log.debug("Calling Click And Collect Delivery Promise Service {}", cncDPERequest.getOrganizationCode());
     return webClient
         .post()
         .uri(UriComponentsBuilder.fromHttpUrl(host)
@@ -44,9 +58,9 @@ public class CNCDPEClient extends Client {
           return response.createException().flatMap(Mono::error);
         })
         .bodyToMono(CNCDPEResponse.class)
-        .doOnError(
-            throwable -> log.error("Error in getting Click And Collect DPE response : {}", throwable.getMessage()))
+        .doOnEach(RequestDiagnostics.logOnError((marker, throwable) -> log.error(marker,
+            "Error in getting Click And Collect DPE response : {}", throwable.getMessage())))
         .doOnSuccess(
-            cncResponse -> log.info("Received Click And Collect DPE response : {}", cncResponse.getReferenceId()));
+            cncResponse -> log.debug("Received Click And Collect DPE response : {}", cncResponse.getReferenceId()));
   }
 }
@@ -25,6 +25,9 @@ import com.domainname.next.shippingapi.TestHelper;
 import com.domainname.next.shippingapi.client.request.CNCMSRequest;
 import com.domainname.next.shippingapi.client.response.cnc.CNCMSResponse;
 import com.domainname.next.shippingapi.client.response.cnc.ExpectedPickupDate;
+import com.domainname.next.shippingapi.util.BatchLookupScope;
+import com.domainname.next.shippingapi.util.RequestFingerprint;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -122,4 +125,28 @@ public class CNCDPEClientTest extends TestHelper {
     .expectErrorMatches(throwable -> throwable instanceof Exception)
     .verify();
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void testIdenticalRequestsOfABatchAreSentOnce() {
+    ReflectionTestUtils.setField(cncDPEClient, "webClient", webClient);
+    ReflectionTestUtils.setField(cncDPEClient, "requestFingerprint", new RequestFingerprint(new ObjectMapper()));
+    Mockito.when(webClient.post()).thenReturn(requestBodyUriSpec);
+    Mockito.when(requestBodyUriSpec.uri(Mockito.any(URI.class))).thenReturn(requestBodySpec);
+    Mockito.when(requestBodySpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
+    Mockito.when(requestBodySpec.accept(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
+    Mockito.when(requestBodySpec.header(Mockito.anyString(), Mockito.anyString())).thenReturn(requestBodySpec);
+    Mockito.when(requestBodySpec.body(Mockito.any(), Mockito.eq(CNCMSRequest.class))).thenReturn(requestHeadersSpec);
+    Mockito.when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+    Mockito.when(responseSpec.onStatus(Mockito.any(), Mockito.any())).thenReturn(responseSpec);
+    Mockito.when(responseSpec.bodyToMono(CNCMSResponse.class)).thenReturn(Mono.just(buildCNCMSResponse("Y")));
+
+    StepVerifier.create(Mono.zip(cncDPEClient.getCNCDPE(cncDPERequest, "web", "domainnameUS"),
+                cncDPEClient.getCNCDPE(buildCNCMSRequest(), "web", "domainnameUS"))
+            .contextWrite(context -> context.put(BatchLookupScope.class, new BatchLookupScope())))
+        .assertNext(responses -> Assertions.assertSame(responses.getT1(), responses.getT2()))
+        .verifyComplete();
+
+    Mockito.verify(webClient, Mockito.times(1)).post();
+  }
 }
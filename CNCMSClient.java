@@ -12,6 +12,9 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import com.domainname.next.shippingapi.client.request.CNCMSRequest;
 import com.domainname.next.shippingapi.client.response.cnc.CNCMSResponse;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
+import com.domainname.next.shippingapi.util.BatchLookupScope;
+import com.domainname.next.shippingapi.util.RequestFingerprint;
 
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
@@ -21,17 +24,30 @@ import reactor.core.publisher.Mono;
 @ConfigurationProperties(prefix = "cnc-ms")
 public class CNCMSClient extends Client {
 
+  private static final String LOOKUP = "cnc-ms";
+
   @Autowired
   @Qualifier("dpeWebClient")
   private WebClient webClient;
 
+  @Autowired
+  private RequestFingerprint requestFingerprint;
+
   @Value("${cnc-ms.x-api-key}")
   private String xApiKey;
 
+  // identical requests of one batch are sent once
   public Mono<CNCMSResponse> getCNCDPE(
       CNCMSRequest cncDPERequest, String channel,
       String enterpriseCode) {
-    log.info("Calling CNC DPE Microservice endpoint {}", cncDPERequest.getCountry());
+    return BatchLookupScope.shared(LOOKUP,
+        () -> requestFingerprint.of(cncDPERequest)
+            .map(fingerprint -> channel + "|" + enterpriseCode + "|" + fingerprint),
+        () -> requestCNCDPE(cncDPERequest, channel, enterpriseCode));
+  }
+
+  private Mono<CNCMSResponse> requestCNCDPE(CNCMSRequest cncDPERequest, String channel, String enterpriseCode) {
+    log.debug("Calling CNC DPE Microservice endpoint {}", cncDPERequest.getCountry());
     return webClient.post()
         .uri(UriComponentsBuilder.fromHttpUrl(host).path(uri).build().toUri())
         .contentType(MediaType.APPLICATION_JSON)
@@ -45,9 +61,9 @@ public class CNCMSClient extends Client {
           log.error("Error from CNC DPE Microservice endpoint {}", response.statusCode());
           return response.createException().flatMap(Mono::error);
         }).bodyToMono(CNCMSResponse.class)
-        .doOnError(throwable -> log.error("Error in getting CNC DPE response : {}",
-            throwable.getMessage()))
-        .doOnSuccess(cncResponse -> log.info("Received CNC DPE response : {}",
+        .doOnEach(RequestDiagnostics.logOnError((marker, throwable) -> log.error(marker,
+            "Error in getting CNC DPE response : {}", throwable.getMessage())))
+        .doOnSuccess(cncResponse -> log.debug("Received CNC DPE response : {}",
             cncResponse.getReferenceId()));
   }
 }
@@ -7,6 +7,8 @@ import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.HandlerStrategies;
@@ -25,8 +27,13 @@ import reactor.core.publisher.Mono;
 @Component
 public class CacheRequestBodyAndRequestFilter implements WebFilter, Ordered {
 
+    private static final String ACTUATOR_PATH = "/actuator";
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!hasBody(exchange.getRequest())) {
+            return chain.filter(exchange);
+        }
         return ServerWebExchangeUtils.cacheRequestBodyAndRequest(exchange, serverHttpRequest -> {
             final ServerRequest serverRequest = ServerRequest
                 .create(exchange.mutate().request(serverHttpRequest).build(), HandlerStrategies.withDefaults().messageReaders());
@@ -47,6 +54,15 @@ public class CacheRequestBodyAndRequestFilter implements WebFilter, Ordered {
         });
     }
 
+    // GET and HEAD requests carry no body worth caching, actuator requests are not logged, and NDJSON uploads are
+    // read as a stream by their handler, joining them here would hold the whole upload in memory
+    static boolean hasBody(ServerHttpRequest request) {
+        return request.getMethod() != HttpMethod.GET
+            && request.getMethod() != HttpMethod.HEAD
+            && !request.getPath().value().contains(ACTUATOR_PATH)
+            && !MediaType.APPLICATION_NDJSON.isCompatibleWith(request.getHeaders().getContentType());
+    }
+
     @Override
     public int getOrder() {
         return Ordered.HIGHEST_PRECEDENCE;
@@ -0,0 +1,62 @@
+package com.domainname.next.shippingapi.filter;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class CacheRequestBodyAndRequestFilterTest {
+
+  private final CacheRequestBodyAndRequestFilter filter = new CacheRequestBodyAndRequestFilter();
+
+  @Test
+  void testJsonBodyIsCached() {
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/shipping-method")
+        .contentType(MediaType.APPLICATION_JSON)
+        .body("{\"siteId\":\"adidas-GB\"}"));
+    AtomicReference<Object> cachedBody = new AtomicReference<>();
+
+    StepVerifier.create(filter.filter(exchange, chained -> {
+          cachedBody.set(chained.getAttribute(CACHED_REQUEST_BODY_ATTR));
+          return Mono.empty();
+        }))
+        .verifyComplete();
+
+    Assertions.assertNotNull(cachedBody.get());
+  }
+
+  @Test
+  void testImportBodyIsStreamedWithoutCaching() {
+    String records = "{\"siteId\":\"adidas-GB\"}\n{\"siteId\":\"adidas-US\"}\n";
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/shipping-method/import")
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(records));
+    AtomicReference<ServerWebExchange> chainedExchange = new AtomicReference<>();
+    AtomicReference<Object> cachedBody = new AtomicReference<>();
+
+    StepVerifier.create(filter.filter(exchange, chained -> {
+          chainedExchange.set(chained);
+          cachedBody.set(chained.getAttribute(CACHED_REQUEST_BODY_ATTR));
+          return Mono.empty();
+        }))
+        .verifyComplete();
+
+    Assertions.assertNull(cachedBody.get());
+    Assertions.assertSame(exchange, chainedExchange.get());
+    StepVerifier.create(DataBufferUtils.join(exchange.getRequest().getBody())
+            .map(dataBuffer -> dataBuffer.toString(StandardCharsets.UTF_8)))
+        .expectNext(records)
+        .verifyComplete();
+  }
+}
@@ -1,30 +1,48 @@
 package com.domainname.next.shippingapi.client.configuration;
 
 
+import com.domainname.next.shippingapi.client.configuration.ClientProperties.CaptureMode;
+import com.domainname.next.shippingapi.client.configuration.ClientProperties.CapturePolicyProperties;
+import com.domainname.next.shippingapi.filter.BoundedBodyCapture;
 import com.domainname.next.shippingapi.filter.MDCManager;
+import com.domainname.next.shippingapi.filter.RequestDeadline;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.slf4j.Marker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.JettyClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactivefeign.jetty.JettyHttpClientFactory;
 import reactivefeign.spring.config.EnableReactiveFeignClients;
-import reactor.util.retry.Retry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
 
 import java.net.URI;
 import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Configuration
 @Setter
@@ -32,6 +50,13 @@ import java.util.Optional;
 @EnableReactiveFeignClients
 public class ClientConfiguration {
 
+  private static final String CAPTURED_BYTES_METRIC = "client_outbound_captured_bytes";
+  private static final String DEFAULT_CAPTURE_POLICY = "default";
+  private static final CapturePolicyProperties DEFAULT_CAPTURE = new CapturePolicyProperties();
+
+  // keyed by the downstream tag of OutboundRequestMetrics, so each downstream has its own retry budget
+  private final Map<String, RetryPolicy> retryPolicies = new ConcurrentHashMap<>();
+
   @Autowired
   private ClientProperties properties;
   
@@ -44,6 +69,12 @@ public class ClientConfiguration {
   @Autowired
   private CircuitBreakerRegistry circuitBreakerRegistry;
 
+  @Autowired
+  private OutboundRequestMetrics outboundRequestMetrics;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
   @Bean
   JettyHttpClientFactory clientFactory(HttpClient httpClient) {
     return useHttp2 -> httpClient;
@@ -66,52 +97,138 @@ public class ClientConfiguration {
   }
 
   private Request enhanceRequest(Request inboundRequest) {
-    long milis = System.currentTimeMillis();
-    inboundRequest.onResponseContent((response, content) -> mdcManager.insertOutgoingClientResponse(response, content));
-    inboundRequest.onResponseSuccess(listener -> {
-      mdcManager.insertOutgoingClientRequest(inboundRequest);
-      log.info("Finished response to 3rd party service within {} millis", System.currentTimeMillis() - milis);
-      mdcManager.cleanupOutgoingRequestFields();
-    });
-    inboundRequest.onResponseFailure((listener, failure) -> {
-      mdcManager.insertOutgoingClientRequest(inboundRequest);
-      log.error("Error response to 3rd party service ", failure);
-      mdcManager.cleanupOutgoingRequestFields();
+    AtomicLong begin = new AtomicLong(System.nanoTime());
+    String downstream = outboundRequestMetrics.downstream(inboundRequest.getURI());
+    CapturePolicyProperties capturePolicy = capturePolicy(downstream);
+    BoundedBodyCapture responseContent = new BoundedBodyCapture(capturePolicy.getMaxBytes());
+    inboundRequest.onRequestBegin(request -> begin.set(System.nanoTime()));
+    if (capturesBody(capturePolicy)) {
+      Counter capturedBytes = meterRegistry.counter(CAPTURED_BYTES_METRIC, "downstream", downstream);
+      boolean errorsOnly = capturePolicy.getMode() == CaptureMode.ERRORS_ONLY;
+      inboundRequest.onResponseContent((response, content) -> {
+        if (!errorsOnly || response.getStatus() >= 400) {
+          capturedBytes.increment(responseContent.capture(content));
+        }
+      });
+    }
+    // Jetty calls these listeners from its own threads, so the fields go on the log event instead of the MDC
+    // successful calls are already counted by OutboundRequestMetrics, only a captured body is worth an info line
+    inboundRequest.onResponseSuccess(response -> {
+      if (!responseContent.isEmpty()) {
+        log.info(outgoingCallMarker(capturePolicy, inboundRequest, response, responseContent),
+            "Finished response to 3rd party service within {} millis", millisSince(begin.get()));
+      } else if (log.isDebugEnabled()) {
+        log.debug(outgoingCallMarker(capturePolicy, inboundRequest, response, responseContent),
+            "Finished response to 3rd party service within {} millis", millisSince(begin.get()));
+      }
     });
+    inboundRequest.onResponseFailure((response, failure) -> log.error(
+        outgoingCallMarker(capturePolicy, inboundRequest, response, responseContent),
+        "Error response to 3rd party service ", failure));
     return inboundRequest;
   }
 
+  private static long millisSince(long beginNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beginNanos);
+  }
+
+  private CapturePolicyProperties capturePolicy(String downstream) {
+    Map<String, CapturePolicyProperties> capturePolicies = properties.getCapturePolicies();
+    return Optional.ofNullable(capturePolicies.get(downstream))
+        .or(() -> Optional.ofNullable(capturePolicies.get(DEFAULT_CAPTURE_POLICY)))
+        .orElse(DEFAULT_CAPTURE);
+  }
+
+  private boolean capturesBody(CapturePolicyProperties capturePolicy) {
+    if (!mdcManager.isLogBody()) {
+      return false;
+    }
+    return switch (capturePolicy.getMode()) {
+      case ERRORS_ONLY -> true;
+      case SAMPLED -> ThreadLocalRandom.current().nextDouble() < capturePolicy.getSampleRate();
+      default -> false;
+    };
+  }
+
+  private Marker outgoingCallMarker(CapturePolicyProperties capturePolicy, Request request, Response response,
+      BoundedBodyCapture responseContent) {
+    return capturePolicy.getMode() == CaptureMode.OFF
+        ? null
+        : mdcManager.outgoingCallMarker(request, response, responseContent);
+  }
+
   @Bean
   @Primary
   public WebClient buildClient (HttpClient httpClient) {
     JettyClientHttpConnector connector = new JettyClientHttpConnector(httpClient);
-    return webClientBuilder
+    return webClientBuilder.clone()
         .clientConnector(connector)
-        .filter(responseTimeout(properties.getResponseTimeout()))
         .filter(retryFilter())
+        .filter(outboundRequestMetrics.filter())
+        .filter(responseTimeout(properties.getResponseTimeout()))
         .build();
   }
 
   @Bean("dpeWebClient")
   public WebClient buildDPEClient (HttpClient httpClient) {
     ClientHttpConnector connector = new JettyClientHttpConnector(httpClient);
-    return webClientBuilder
+    return webClientBuilder.clone()
         .clientConnector(connector)
-        .filter(responseTimeout(properties.getDpeResponseTimeout()))
         .filter(retryFilter())
+        .filter(outboundRequestMetrics.filter())
+        .filter(responseTimeout(properties.getDpeResponseTimeout()))
         .build();
   }
 
-  // This method returns filter function which will add a timeout
+  // This method returns filter function which will add a timeout to every attempt, bounded by the request deadline
   private static ExchangeFilterFunction responseTimeout(Long responseTimeout) {
-    return (request, next) -> next.exchange(request).timeout(Duration.ofMillis(responseTimeout));
+    return (request, next) -> Mono.deferContextual(context -> {
+      if (RequestDeadline.from(context).filter(RequestDeadline::isExpired).isPresent()) {
+        return Mono.error(new TimeoutException("Request deadline exceeded before calling " + request.url().getHost()));
+      }
+      return next.exchange(request)
+          .timeout(RequestDeadline.boundTimeout(context, Duration.ofMillis(responseTimeout)));
+    });
   }
 
   private ExchangeFilterFunction retryFilter() {
-    return (request, next) ->
-        next.exchange(request)
-            .retryWhen(
-                Retry.fixedDelay(properties.getRetries(), Duration.ofMillis(properties.getRetryDelayMilis()))
-                    .doAfterRetry(retrySignal -> log.warn("Retrying request")));
+    return (request, next) -> Mono.defer(() -> {
+      RetryPolicy retryPolicy = retryPolicies.computeIfAbsent(outboundRequestMetrics.downstream(request.url()),
+          downstream -> new RetryPolicy(downstream, properties, meterRegistry));
+      retryPolicy.onRequest();
+      return exchange(request, next, retryPolicy, 0);
+    });
+  }
+
+  private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, RetryPolicy retryPolicy,
+      int attempt) {
+    return next.exchange(request)
+        .materialize()
+        .flatMap(signal -> Mono.deferContextual(context -> {
+          boolean retryable = signal.isOnError()
+              ? retryPolicy.isRetryable(request.method(), signal.getThrowable())
+              : signal.hasValue() && retryPolicy.isRetryable(request.method(), signal.get().statusCode());
+          Duration backoff = retryPolicy.backoff(attempt);
+          // no point in retrying when the caller is gone before the next attempt starts
+          boolean withinDeadline = RequestDeadline.from(context)
+              .map(deadline -> deadline.remaining().compareTo(backoff) > 0)
+              .orElse(true);
+          if (!retryable || !withinDeadline || !retryPolicy.tryRetry(attempt)) {
+            retryPolicy.recordOutcome(outcome(signal), attempt);
+            return Mono.just(signal).<ClientResponse>dematerialize();
+          }
+          log.warn(RequestDiagnostics.correlationMarker(context), "Retrying request {} {} in {} millis",
+              request.method(), request.url().getHost(), backoff.toMillis());
+          return Mono.justOrEmpty(signal.get()).flatMap(ClientResponse::releaseBody)
+              .then(Mono.delay(backoff))
+              .then(exchange(request, next, retryPolicy, attempt + 1));
+        }));
+  }
+
+  private static String outcome(Signal<ClientResponse> signal) {
+    if (signal.isOnError()) {
+      return "error";
+    }
+    return signal.hasValue() && signal.get().statusCode().isError() ? "error_status" : "success";
   }
 }
@@ -1,5 +1,8 @@
 package com.domainname.next.shippingapi.client.configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
@@ -15,4 +18,38 @@ public class ClientProperties {
   private Integer retries;
   private Integer retryDelayMilis;
   private Long dpeResponseTimeout;
+  // keyed by downstream tag of OutboundRequestMetrics ("dpe", "cnc-ms", ...), "default" applies to the others,
+  // unset values fall back to retries and retryDelayMilis
+  private Map<String, RetryPolicyProperties> retryPolicies = new HashMap<>();
+  // keyed by downstream tag of OutboundRequestMetrics ("dpe", "geocode", ...), "default" applies to the others
+  private Map<String, CapturePolicyProperties> capturePolicies = new HashMap<>();
+
+  @Data
+  public static class RetryPolicyProperties {
+
+    private Integer maxRetries;
+    private Long baseDelayMillis;
+    private Long maxDelayMillis = 5000L;
+    // retries may not exceed this fraction of live requests
+    private Double budgetRatio = 0.1;
+    private Double budgetMaxTokens = 10.0;
+    // whether requests other than GET, HEAD, OPTIONS, PUT and DELETE are retried after they may have been received
+    private boolean retryNonIdempotent = false;
+  }
+
+  public enum CaptureMode {
+    OFF,
+    HEADERS_ONLY,
+    SAMPLED,
+    ERRORS_ONLY
+  }
+
+  @Data
+  public static class CapturePolicyProperties {
+
+    private CaptureMode mode = CaptureMode.ERRORS_ONLY;
+    // fraction of calls whose response body is captured in SAMPLED mode
+    private Double sampleRate = 0.01;
+    private Integer maxBytes = 8192;
+  }
 }
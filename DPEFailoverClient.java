@@ -2,6 +2,7 @@ package com.domainname.next.shippingapi.client;
 
 import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
 import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -22,12 +23,20 @@ public class DPEFailoverClient extends Client {
   @Value("${dpe-failover.appid}")
   private String appId;
 
+  @Autowired
+  private DeliveryPromiseResponseCache deliveryPromiseResponseCache;
+
   @Autowired
   @Qualifier("dpeWebClient")
   private WebClient webClient;
 
   public Mono<DeliveryPromiseResponse> getDeliveryPromiseFailover(DeliveryPromiseRequest deliveryPromiseRequest) {
-    log.info("Calling Delivery Promise Failover Endpoint {}", deliveryPromiseRequest.getOrganizationCode());
+    return deliveryPromiseResponseCache.get("dpe-failover", deliveryPromiseRequest,
+        () -> requestDeliveryPromiseFailover(deliveryPromiseRequest));
+  }
+
+  private Mono<DeliveryPromiseResponse> requestDeliveryPromiseFailover(DeliveryPromiseRequest deliveryPromiseRequest) {
+    log.debug("Calling Delivery Promise Failover Endpoint {}", deliveryPromiseRequest.getOrganizationCode());
     return webClient
         .post()
         .uri(UriComponentsBuilder.fromHttpUrl(host)
@@ -43,7 +52,8 @@ public class DPEFailoverClient extends Client {
           return response.createException().flatMap(Mono::error);
         })
         .bodyToMono(DeliveryPromiseResponse.class)
-        .doOnError(throwable -> log.error("Error in getting Delivery Promise Failover response : {}", throwable.getMessage()))
-        .doOnSuccess(dPEResponse -> log.info("Received Delivery Promise Failover response")); 
+        .doOnEach(RequestDiagnostics.logOnError((marker, throwable) -> log.error(marker,
+            "Error in getting Delivery Promise Failover response : {}", throwable.getMessage())))
+        .doOnSuccess(dPEResponse -> log.debug("Received Delivery Promise Failover response")); 
   }
 }
@@ -14,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -23,10 +24,14 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import com.domainname.next.shippingapi.TestHelper;
+import com.domainname.next.shippingapi.client.configuration.DeliveryPromiseHedgeProperties;
 import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
 import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
+import com.domainname.next.shippingapi.config.cache.DeliveryPromiseCacheProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.domainname.next.shippingapi.enums.TargetService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -39,6 +44,14 @@ class DPEServiceClientTest extends TestHelper {
   @Mock
   DeliveryPromiseRequest dpeRequest;
 
+  @Spy
+  DeliveryPromiseResponseCache deliveryPromiseResponseCache = new DeliveryPromiseResponseCache(
+      new DeliveryPromiseCacheProperties(), new SimpleMeterRegistry(), new ObjectMapper());
+
+  @Spy
+  DeliveryPromiseHedgingClient deliveryPromiseHedgingClient = new DeliveryPromiseHedgingClient(
+      Mockito.mock(DPEFailoverClient.class), new DeliveryPromiseHedgeProperties(), new SimpleMeterRegistry());
+
   private final WebClient webClient = Mockito.mock(WebClient.class);
   private final WebClient.RequestBodyUriSpec requestBodyUriSpec = Mockito.mock(WebClient.RequestBodyUriSpec.class);
   private final WebClient.RequestBodySpec requestBodySpec = Mockito.mock(WebClient.RequestBodySpec.class);
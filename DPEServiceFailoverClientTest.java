@@ -13,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -24,7 +25,10 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import com.domainname.next.shippingapi.TestHelper;
 import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
 import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
+import com.domainname.next.shippingapi.config.cache.DeliveryPromiseCacheProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -37,6 +41,10 @@ class DPEServiceFailoverClientTest extends TestHelper {
   @Mock
   DeliveryPromiseRequest dpeRequest;
 
+  @Spy
+  DeliveryPromiseResponseCache deliveryPromiseResponseCache = new DeliveryPromiseResponseCache(
+      new DeliveryPromiseCacheProperties(), new SimpleMeterRegistry(), new ObjectMapper());
+
   private final WebClient webClient = Mockito.mock(WebClient.class);
   private final WebClient.RequestBodyUriSpec requestBodyUriSpec = Mockito.mock(WebClient.RequestBodyUriSpec.class);
   private final WebClient.RequestBodySpec requestBodySpec = Mockito.mock(WebClient.RequestBodySpec.class);
@@ -0,0 +1,15 @@
+package com.domainname.next.shippingapi.config.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "delivery-promise-cache")
+public class DeliveryPromiseCacheProperties {
+
+  private boolean enabled = true;
+  private Long ttlMillis = 30000L;
+  private Integer maxEntries = 10000;
+}
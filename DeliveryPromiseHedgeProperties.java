@@ -0,0 +1,21 @@
+package com.domainname.next.shippingapi.client.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "delivery-promise-hedge")
+public class DeliveryPromiseHedgeProperties {
+
+  private boolean enabled = false;
+  // fixed hedge delay, when not set the delay is learned from the primary p95 latency
+  private Long hedgeAfterMillis;
+  private Long minHedgeAfterMillis = 200L;
+  private Long initialHedgeAfterMillis = 2000L;
+  private Integer minSamples = 100;
+  // at most this fraction of primary calls may be hedged
+  private Double maxHedgeRatio = 0.05;
+  private Double maxBudgetTokens = 10.0;
+}
@@ -0,0 +1,131 @@
+package com.domainname.next.shippingapi.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.domainname.next.shippingapi.client.configuration.DeliveryPromiseHedgeProperties;
+import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
+import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Hedges the calls of the primary Delivery Promise clients, {@link DeliveryPromiseServiceClient} and
+ * {@link DeliveryPromiseMSClient}: when the primary call has not answered within the hedge delay, the failover
+ * endpoint is called as well. Whichever answers first wins and the other call is cancelled. A primary call that fails
+ * before the hedge delay fails the request straight away, the hedge is only there to cut the latency tail.
+ *
+ * The hedge delay is {@code hedge-after-millis} when configured, otherwise the observed p95 of the primary calls
+ * (never below {@code min-hedge-after-millis}). Hedges draw from a token bucket refilled by {@code max-hedge-ratio}
+ * per primary call, so hedging never adds more than that fraction of extra load on Delivery Promise.
+ *
+ * Hedging is disabled by default and switched on with {@code delivery-promise-hedge.enabled}.
+ */
+@Component
+@Slf4j
+public class DeliveryPromiseHedgingClient {
+
+  private static final String HEDGE_METRIC = "delivery_promise_hedge";
+  private static final String LATENCY_METRIC = "delivery_promise_primary_latency";
+
+  private final DPEFailoverClient dpeFailoverClient;
+  private final DeliveryPromiseHedgeProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final Timer primaryLatency;
+
+  private double budgetTokens;
+
+  public DeliveryPromiseHedgingClient(DPEFailoverClient dpeFailoverClient, DeliveryPromiseHedgeProperties properties,
+      MeterRegistry meterRegistry) {
+    this.dpeFailoverClient = dpeFailoverClient;
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.primaryLatency = Timer.builder(LATENCY_METRIC)
+        .publishPercentiles(0.95)
+        .distributionStatisticExpiry(Duration.ofMinutes(2))
+        .register(meterRegistry);
+    this.budgetTokens = properties.getMaxBudgetTokens();
+  }
+
+  public Mono<DeliveryPromiseResponse> hedged(Mono<DeliveryPromiseResponse> primaryCall,
+      DeliveryPromiseRequest deliveryPromiseRequest) {
+    if (!properties.isEnabled()) {
+      return primaryCall;
+    }
+    return Mono.deferContextual(context -> {
+          refillBudget();
+          Sinks.One<Boolean> primaryFailed = Sinks.one();
+          Duration hedgeAfter = hedgeAfter();
+          Mono<DeliveryPromiseResponse> hedgeCall = Mono.delay(hedgeAfter)
+              .takeUntilOther(primaryFailed.asMono())
+              .filter(ignored -> tryAcquireHedge())
+              .doOnNext(ignored -> {
+                log.warn(RequestDiagnostics.correlationMarker(context),
+                    "Delivery Promise has not answered within {} millis, calling failover endpoint",
+                    hedgeAfter.toMillis());
+                record("fired");
+              })
+              .flatMap(ignored -> dpeFailoverClient.getDeliveryPromiseFailover(deliveryPromiseRequest))
+              .doOnNext(ignored -> record("won"));
+          return Mono.firstWithValue(primaryCall.doOnError(ignored -> primaryFailed.tryEmitValue(true)), hedgeCall);
+        })
+        .onErrorMap(NoSuchElementException.class, e -> Arrays.stream(e.getSuppressed()).findFirst().orElse(e));
+  }
+
+  /**
+   * Records the latency the hedge delay is learned from, around the outbound call of a primary client. A call that
+   * is cancelled, by a winning hedge or because all of its callers left, was cut short and is not recorded.
+   */
+  public Mono<DeliveryPromiseResponse> timed(Mono<DeliveryPromiseResponse> call) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return call.doFinally(signalType -> {
+        if (signalType != SignalType.CANCEL) {
+          primaryLatency.record(Duration.ofNanos(System.nanoTime() - start));
+        }
+      });
+    });
+  }
+
+  private Duration hedgeAfter() {
+    if (properties.getHedgeAfterMillis() != null) {
+      return Duration.ofMillis(properties.getHedgeAfterMillis());
+    }
+    if (primaryLatency.count() < properties.getMinSamples()) {
+      return Duration.ofMillis(properties.getInitialHedgeAfterMillis());
+    }
+    double p95Millis = Arrays.stream(primaryLatency.takeSnapshot().percentileValues())
+        .filter(percentile -> percentile.percentile() == 0.95)
+        .mapToDouble(percentile -> percentile.value(TimeUnit.MILLISECONDS))
+        .findFirst()
+        .orElse(properties.getInitialHedgeAfterMillis());
+    return Duration.ofMillis(Math.max(properties.getMinHedgeAfterMillis(), (long) p95Millis));
+  }
+
+  private synchronized void refillBudget() {
+    budgetTokens = Math.min(properties.getMaxBudgetTokens(), budgetTokens + properties.getMaxHedgeRatio());
+  }
+
+  private synchronized boolean tryAcquireHedge() {
+    if (budgetTokens < 1) {
+      record("denied");
+      return false;
+    }
+    budgetTokens -= 1;
+    return true;
+  }
+
+  private void record(String result) {
+    meterRegistry.counter(HEDGE_METRIC, "result", result).increment();
+  }
+}
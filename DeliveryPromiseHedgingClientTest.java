@@ -0,0 +1,74 @@
+package com.domainname.next.shippingapi.client;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.domainname.next.shippingapi.TestHelper;
+import com.domainname.next.shippingapi.client.configuration.DeliveryPromiseHedgeProperties;
+import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
+import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class DeliveryPromiseHedgingClientTest extends TestHelper {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final DPEFailoverClient dpeFailoverClient = Mockito.mock(DPEFailoverClient.class);
+  private final DeliveryPromiseHedgeProperties properties = new DeliveryPromiseHedgeProperties();
+
+  private DeliveryPromiseHedgingClient hedgingClient;
+  private DeliveryPromiseRequest dpeRequest;
+
+  @BeforeEach
+  void setup() {
+    properties.setEnabled(true);
+    properties.setHedgeAfterMillis(20L);
+    hedgingClient = new DeliveryPromiseHedgingClient(dpeFailoverClient, properties, meterRegistry);
+    dpeRequest = buildDPERequest();
+  }
+
+  @Test
+  void testCancelledPrimaryIsNotRecorded() {
+    DeliveryPromiseResponse hedgeResponse = buildDPEResponse();
+    Mockito.when(dpeFailoverClient.getDeliveryPromiseFailover(dpeRequest)).thenReturn(Mono.just(hedgeResponse));
+
+    StepVerifier.create(hedgingClient.hedged(hedgingClient.timed(Mono.never()), dpeRequest))
+        .expectNext(hedgeResponse)
+        .verifyComplete();
+
+    Assertions.assertEquals(0, primaryLatencyCount());
+    Assertions.assertEquals(1, meterRegistry.counter("delivery_promise_hedge", "result", "won").count());
+  }
+
+  @Test
+  void testAnsweredPrimaryIsRecorded() {
+    StepVerifier.create(hedgingClient.hedged(hedgingClient.timed(Mono.just(buildDPEResponse())), dpeRequest))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    Assertions.assertEquals(1, primaryLatencyCount());
+    Mockito.verifyNoInteractions(dpeFailoverClient);
+  }
+
+  @Test
+  void testFailingPrimaryFailsWithoutHedge() {
+    Mono<DeliveryPromiseResponse> primary = Mono.error(new IllegalStateException());
+
+    StepVerifier.create(hedgingClient.hedged(hedgingClient.timed(primary), dpeRequest))
+        .expectError(IllegalStateException.class)
+        .verify(Duration.ofSeconds(1));
+
+    Assertions.assertEquals(1, primaryLatencyCount());
+    Mockito.verifyNoInteractions(dpeFailoverClient);
+  }
+
+  private long primaryLatencyCount() {
+    return meterRegistry.get("delivery_promise_primary_latency").timer().count();
+  }
+}
@@ -3,6 +3,7 @@ package com.domainname.next.shippingapi.client;
 import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
 import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
 import com.domainname.next.shippingapi.enums.TargetService;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +29,12 @@ public class DeliveryPromiseMSClient extends Client implements DeliveryPromiseCl
 
   private static final TargetService targetService = TargetService.DPEV2_HD_MS;
 
+  @Autowired
+  private DeliveryPromiseResponseCache deliveryPromiseResponseCache;
+
+  @Autowired
+  private DeliveryPromiseHedgingClient deliveryPromiseHedgingClient;
+
   @Autowired
   @Qualifier("dpeWebClient")
   private WebClient client;
@@ -35,7 +42,14 @@ public class DeliveryPromiseMSClient extends Client implements DeliveryPromiseCl
   private String xApiKey;
 
   public Mono<DeliveryPromiseResponse> getDeliveryPromise(DeliveryPromiseRequest deliveryPromiseRequest) {
-    log.info("Calling Delivery Promise Microservice {}", deliveryPromiseRequest.getOrganizationCode());
+    Mono<DeliveryPromiseResponse> primaryCall = deliveryPromiseResponseCache.get("deliverypromise-ms",
+        deliveryPromiseRequest,
+        () -> deliveryPromiseHedgingClient.timed(requestDeliveryPromise(deliveryPromiseRequest)));
+    return deliveryPromiseHedgingClient.hedged(primaryCall, deliveryPromiseRequest);
+  }
+
+  private Mono<DeliveryPromiseResponse> requestDeliveryPromise(DeliveryPromiseRequest deliveryPromiseRequest) {
+    log.debug("Calling Delivery Promise Microservice {}", deliveryPromiseRequest.getOrganizationCode());
     return client
         .post()
         .uri(UriComponentsBuilder.fromHttpUrl(host)
@@ -51,9 +65,9 @@ public class DeliveryPromiseMSClient extends Client implements DeliveryPromiseCl
           return response.createException().flatMap(Mono::error);
         })
         .bodyToMono(DeliveryPromiseResponse.class)
-        .doOnError(throwable -> log.error("Error in getting Delivery Promise Microservice response : {}",
-            throwable.getMessage()))
-        .doOnSuccess(dPEResponse -> log.info("Received Delivery Promise Microservice response"));
+        .doOnEach(RequestDiagnostics.logOnError((marker, throwable) -> log.error(marker,
+            "Error in getting Delivery Promise Microservice response : {}", throwable.getMessage())))
+        .doOnSuccess(dPEResponse -> log.debug("Received Delivery Promise Microservice response"));
   }
 
   public Boolean shouldApply(Map<String, Boolean> siteIdTargetEnabledMap) {
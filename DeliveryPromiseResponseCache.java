@@ -0,0 +1,159 @@
+package com.domainname.next.shippingapi.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
+import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
+import com.domainname.next.shippingapi.config.cache.DeliveryPromiseCacheProperties;
+import com.domainname.next.shippingapi.filter.RequestDeadline;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
+import com.domainname.next.shippingapi.filter.RequestEvent;
+import com.domainname.next.shippingapi.util.BatchLookupScope;
+import com.domainname.next.shippingapi.util.RequestFingerprint;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Short lived cache of Delivery Promise responses, keyed by the calling endpoint and a canonical fingerprint of the
+ * {@link DeliveryPromiseRequest} (properties and map entries sorted, SHA-256 of the resulting JSON).
+ *
+ * Responses are kept serialized, in a cache bounded by {@code max-entries} that expires them {@code ttl-millis} after
+ * they were received, and every caller gets its own copy. Concurrent identical requests share the one outbound call
+ * that is in flight; it runs with the diagnostics of the caller that started it but without any deadline and is
+ * cancelled once all of them are gone, while each caller waits no longer than its own {@link RequestDeadline}.
+ * Errors and empty responses are never kept.
+ */
+@Component
+public class DeliveryPromiseResponseCache {
+
+  private static final String METRIC = "delivery_promise_cache";
+  private static final List<Class<?>> SHARED_CONTEXT_KEYS = List.of(RequestDiagnostics.class, RequestEvent.class);
+
+  private final DeliveryPromiseCacheProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final ObjectMapper objectMapper;
+  private final RequestFingerprint requestFingerprint;
+
+  private final Cache<String, byte[]> responses;
+  private final Map<String, Mono<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+  public DeliveryPromiseResponseCache(DeliveryPromiseCacheProperties properties, MeterRegistry meterRegistry,
+      ObjectMapper objectMapper) {
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.objectMapper = objectMapper;
+    this.requestFingerprint = new RequestFingerprint(objectMapper);
+    this.responses = Caffeine.newBuilder()
+        .maximumSize(properties.getMaxEntries())
+        .expireAfterWrite(Duration.ofMillis(properties.getTtlMillis()))
+        .build();
+  }
+
+  public Mono<DeliveryPromiseResponse> get(String target, DeliveryPromiseRequest deliveryPromiseRequest,
+      Supplier<Mono<DeliveryPromiseResponse>> call) {
+    if (!properties.isEnabled()) {
+      return Mono.defer(call);
+    }
+    String organization = Optional.ofNullable(deliveryPromiseRequest.getOrganizationCode()).orElse("unknown");
+    Optional<String> key = requestFingerprint.of(deliveryPromiseRequest).map(fingerprint -> target + ":" + fingerprint);
+    if (key.isEmpty()) {
+      record(target, organization, "bypass");
+      return Mono.defer(call);
+    }
+    Mono<byte[]> response = BatchLookupScope.shared(target, key.get(),
+        () -> lookup(key.get(), target, organization, call));
+    return withinDeadline(response).map(this::read);
+  }
+
+  public void invalidateAll() {
+    responses.invalidateAll();
+  }
+
+  private Mono<byte[]> lookup(String key, String target, String organization,
+      Supplier<Mono<DeliveryPromiseResponse>> call) {
+    byte[] cached = responses.getIfPresent(key);
+    if (cached != null) {
+      record(target, organization, "hit");
+      return Mono.just(cached);
+    }
+    Mono<byte[]> created = share(key, call);
+    Mono<byte[]> existing = inFlight.putIfAbsent(key, created);
+    record(target, organization, existing != null ? "coalesced" : "miss");
+    return existing != null ? existing : created;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Mono<byte[]> share(String key, Supplier<Mono<DeliveryPromiseResponse>> call) {
+    Mono<byte[]>[] shared = new Mono[1];
+    shared[0] = Mono.defer(call)
+        .map(this::write)
+        // leaves in flight before the signal is passed on, so a later caller finds the response instead of
+        // subscribing again to the terminated call
+        .doOnNext(received -> responses.put(key, received))
+        .doOnEach(signal -> inFlight.remove(key, shared[0]))
+        .doOnCancel(() -> inFlight.remove(key, shared[0]))
+        .contextWrite(DeliveryPromiseResponseCache::sharedContext)
+        .flux()
+        .replay(1)
+        .refCount(1)
+        .singleOrEmpty();
+    return shared[0];
+  }
+
+  /**
+   * The call is made on behalf of every waiter. It keeps the diagnostics and the request event of the caller that
+   * started it, so that it is still logged, tagged and timed, but none of the deadlines apply to it.
+   */
+  private static Context sharedContext(ContextView context) {
+    Context shared = Context.empty();
+    for (Class<?> key : SHARED_CONTEXT_KEYS) {
+      Optional<Object> value = context.getOrEmpty(key);
+      if (value.isPresent()) {
+        shared = shared.put(key, value.get());
+      }
+    }
+    return shared;
+  }
+
+  private static <T> Mono<T> withinDeadline(Mono<T> response) {
+    return Mono.deferContextual(context -> RequestDeadline.from(context)
+        .map(deadline -> response.timeout(deadline.remaining()))
+        .orElse(response));
+  }
+
+  private byte[] write(DeliveryPromiseResponse response) {
+    try {
+      return objectMapper.writeValueAsBytes(response);
+    } catch (JsonProcessingException e) {
+      throw Exceptions.propagate(e);
+    }
+  }
+
+  private DeliveryPromiseResponse read(byte[] response) {
+    try {
+      return objectMapper.readValue(response, DeliveryPromiseResponse.class);
+    } catch (IOException e) {
+      throw Exceptions.propagate(e);
+    }
+  }
+
+  private void record(String target, String organization, String result) {
+    meterRegistry.counter(METRIC, "target", target, "organization", organization, "result", result).increment();
+  }
+}
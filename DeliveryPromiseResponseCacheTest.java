@@ -0,0 +1,154 @@
+package com.domainname.next.shippingapi.client;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.domainname.next.shippingapi.TestHelper;
+import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
+import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
+import com.domainname.next.shippingapi.config.cache.DeliveryPromiseCacheProperties;
+import com.domainname.next.shippingapi.filter.RequestDeadline;
+import com.domainname.next.shippingapi.filter.RequestEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.ContextView;
+
+class DeliveryPromiseResponseCacheTest extends TestHelper {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private DeliveryPromiseResponseCache cache;
+  private DeliveryPromiseRequest dpeRequest;
+
+  @BeforeEach
+  void setup() {
+    cache = new DeliveryPromiseResponseCache(new DeliveryPromiseCacheProperties(), meterRegistry, new ObjectMapper());
+    dpeRequest = buildDPERequest();
+  }
+
+  @Test
+  void testConcurrentIdenticalRequestsShareOneCall() {
+    Sinks.One<DeliveryPromiseResponse> response = Sinks.one();
+    Mono<DeliveryPromiseResponse> first = cache.get("deliverypromise", dpeRequest, () -> count(response.asMono()));
+    Mono<DeliveryPromiseResponse> second = cache.get("deliverypromise", buildDPERequest(), () -> count(response.asMono()));
+
+    StepVerifier.create(Mono.zip(first, second))
+        .then(() -> response.tryEmitValue(buildDPEResponse()))
+        .assertNext(responses -> {
+          // every caller gets its own copy of the shared response
+          Assertions.assertNotSame(responses.getT1(), responses.getT2());
+          Assertions.assertEquals(json(responses.getT1()), json(responses.getT2()));
+        })
+        .verifyComplete();
+    StepVerifier.create(cache.get("deliverypromise", dpeRequest, () -> count(Mono.just(buildDPEResponse()))))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    Assertions.assertEquals(1, calls.get());
+    Assertions.assertEquals(1, count("miss"));
+    Assertions.assertEquals(1, count("coalesced"));
+    Assertions.assertEquals(1, count("hit"));
+  }
+
+  @Test
+  void testErrorsAreNotCached() {
+    StepVerifier.create(cache.get("deliverypromise", dpeRequest, () -> count(Mono.error(new IllegalStateException()))))
+        .expectError(IllegalStateException.class)
+        .verify();
+    StepVerifier.create(cache.get("deliverypromise", dpeRequest, () -> count(Mono.just(buildDPEResponse()))))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    Assertions.assertEquals(2, calls.get());
+  }
+
+  @Test
+  void testTargetsAreCachedSeparately() {
+    cache.get("deliverypromise", dpeRequest, () -> count(Mono.just(buildDPEResponse()))).block();
+    cache.get("dpe-failover", dpeRequest, () -> count(Mono.just(buildDPEResponse()))).block();
+
+    Assertions.assertEquals(2, calls.get());
+  }
+
+  @Test
+  void testCallIsCancelledWhenAllWaitersCancel() {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Mono<DeliveryPromiseResponse> pending = Mono.<DeliveryPromiseResponse>never().doOnCancel(() -> cancelled.set(true));
+
+    cache.get("deliverypromise", dpeRequest, () -> count(pending)).subscribe().dispose();
+    StepVerifier.create(cache.get("deliverypromise", dpeRequest, () -> count(Mono.just(buildDPEResponse()))))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    Assertions.assertTrue(cancelled.get());
+    Assertions.assertEquals(2, calls.get());
+  }
+
+  @Test
+  void testEachCallerWaitsWithinItsOwnDeadline() {
+    Sinks.One<DeliveryPromiseResponse> response = Sinks.one();
+    Mono<DeliveryPromiseResponse> patient = cache.get("deliverypromise", dpeRequest, () -> count(response.asMono()));
+    Mono<DeliveryPromiseResponse> hurried = cache.get("deliverypromise", dpeRequest, () -> count(response.asMono()))
+        .contextWrite(context -> context.put(RequestDeadline.class, RequestDeadline.after(Duration.ofMillis(20))));
+
+    StepVerifier.create(patient)
+        .then(() -> StepVerifier.create(hurried).expectError(TimeoutException.class).verify())
+        .then(() -> response.tryEmitValue(buildDPEResponse()))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    Assertions.assertEquals(1, calls.get());
+    Assertions.assertEquals(1, count("coalesced"));
+  }
+
+  @Test
+  void testSharedCallKeepsRequestEventButNoDeadline() {
+    RequestEvent event = new RequestEvent();
+    AtomicReference<ContextView> seen = new AtomicReference<>();
+    Mono<DeliveryPromiseResponse> response = Mono.deferContextual(context -> {
+      seen.set(context);
+      return Mono.just(buildDPEResponse());
+    });
+
+    StepVerifier.create(cache.get("deliverypromise", dpeRequest, () -> count(response))
+            .contextWrite(context -> context.put(RequestEvent.class, event)
+                .put(RequestDeadline.class, RequestDeadline.after(Duration.ofSeconds(1)))))
+        .expectNextCount(1)
+        .verifyComplete();
+
+    Assertions.assertSame(event, RequestEvent.from(seen.get()).orElseThrow());
+    Assertions.assertTrue(RequestDeadline.from(seen.get()).isEmpty());
+  }
+
+  private Mono<DeliveryPromiseResponse> count(Mono<DeliveryPromiseResponse> response) {
+    calls.incrementAndGet();
+    return response;
+  }
+
+  private double count(String result) {
+    return meterRegistry.find("delivery_promise_cache").tag("result", result).counters().stream()
+        .mapToDouble(counter -> counter.count())
+        .sum();
+  }
+
+  private String json(DeliveryPromiseResponse response) {
+    try {
+      return new ObjectMapper().writeValueAsString(response);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
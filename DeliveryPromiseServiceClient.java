@@ -3,6 +3,7 @@ package com.domainname.next.shippingapi.client;
 import com.domainname.next.shippingapi.client.request.DeliveryPromiseRequest;
 import com.domainname.next.shippingapi.client.response.DeliveryPromiseResponse;
 import com.domainname.next.shippingapi.enums.TargetService;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -29,12 +30,25 @@ public class DeliveryPromiseServiceClient extends Client implements DeliveryProm
   @Value("${deliverypromise.appid}")
   private String appId;
 
+  @Autowired
+  private DeliveryPromiseResponseCache deliveryPromiseResponseCache;
+
+  @Autowired
+  private DeliveryPromiseHedgingClient deliveryPromiseHedgingClient;
+
   @Autowired
   @Qualifier("dpeWebClient")
   private WebClient webClient;
 
   public Mono<DeliveryPromiseResponse> getDeliveryPromise(DeliveryPromiseRequest deliveryPromiseRequest) {
-    log.info("Calling Delivery Promise Service {}", deliveryPromiseRequest.getOrganizationCode());
+    Mono<DeliveryPromiseResponse> primaryCall = deliveryPromiseResponseCache.get("deliverypromise",
+        deliveryPromiseRequest,
+        () -> deliveryPromiseHedgingClient.timed(requestDeliveryPromise(deliveryPromiseRequest)));
+    return deliveryPromiseHedgingClient.hedged(primaryCall, deliveryPromiseRequest);
+  }
+
+  private Mono<DeliveryPromiseResponse> requestDeliveryPromise(DeliveryPromiseRequest deliveryPromiseRequest) {
+    log.debug("Calling Delivery Promise Service {}", deliveryPromiseRequest.getOrganizationCode());
     return webClient
         .post()
         .uri(UriComponentsBuilder.fromHttpUrl(host)
@@ -50,8 +64,9 @@ public class DeliveryPromiseServiceClient extends Client implements DeliveryProm
           return response.createException().flatMap(Mono::error);
         })
         .bodyToMono(DeliveryPromiseResponse.class)
-        .doOnError(throwable -> log.error("Error in getting Delivery Promise response : {}", throwable.getMessage()))
-        .doOnSuccess(dPEResponse -> log.info("Received Delivery Promise response"));
+        .doOnEach(RequestDiagnostics.logOnError((marker, throwable) -> log.error(marker,
+            "Error in getting Delivery Promise response : {}", throwable.getMessage())))
+        .doOnSuccess(dPEResponse -> log.debug("Received Delivery Promise response"));
   }
 
   public Boolean shouldApply(Map<String, Boolean> siteIdTargetEnabledMap) {
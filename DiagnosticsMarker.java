@@ -0,0 +1,73 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import net.logstash.logback.marker.LogstashMarker;
+
+/**
+ * Marker whose fields are only computed and written when the log event carrying it is encoded, so nothing is
+ * serialized for log statements that are filtered out.
+ */
+public final class DiagnosticsMarker extends LogstashMarker {
+
+  private static final String MARKER_NAME = "DIAGNOSTICS";
+
+  private final FieldWriter writer;
+
+  public DiagnosticsMarker(FieldWriter writer) {
+    super(MARKER_NAME);
+    this.writer = writer;
+  }
+
+  @Override
+  public void writeTo(JsonGenerator generator) throws IOException {
+    writer.writeTo(generator);
+  }
+
+  // several diagnostics markers share the name, identity keeps them apart when they are combined
+  @Override
+  public boolean equals(Object o) {
+    return this == o;
+  }
+
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(this);
+  }
+
+  /**
+   * Writes one {@code prefix.name} field per header, holding the JSON array of its values as a string, skipping the
+   * sanitized headers.
+   */
+  static void writeHeaders(JsonGenerator generator, String prefix, Iterable<Map.Entry<String, List<String>>> headers,
+      Set<String> sanitizedHeaders) throws IOException {
+    for (Map.Entry<String, List<String>> header : headers) {
+      if (sanitizedHeaders.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+        continue;
+      }
+      generator.writeStringField(prefix + "." + header.getKey(), header.getValue().stream()
+          .map(value -> "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + "\"")
+          .collect(Collectors.joining(",", "[", "]")));
+    }
+  }
+
+  static void writeStringField(JsonGenerator generator, String name, String value) throws IOException {
+    if (value != null) {
+      generator.writeStringField(name, value);
+    }
+  }
+
+  @FunctionalInterface
+  public interface FieldWriter {
+
+    void writeTo(JsonGenerator generator) throws IOException;
+  }
+}
@@ -0,0 +1,26 @@
+package com.domainname.next.shippingapi.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "fulfillment-budget")
+public class FulfillmentBudgetProperties {
+
+  // opt in, a slow fulfillment type is then answered with its empty option instead of delaying the response
+  private boolean enabled = false;
+  private Long defaultBudgetMillis = 8000L;
+  // per fulfillment type budgets keyed by fulfillment type value, e.g. clickAndCollect
+  private Map<String, Long> budgetMillis = new HashMap<>();
+  // kept back from the request deadline so the partial response is written before the deadline filter gives up
+  private Long deadlineReserveMillis = 500L;
+
+  public long getBudgetMillis(String fulfillmentType) {
+    return budgetMillis.getOrDefault(fulfillmentType, defaultBudgetMillis);
+  }
+}
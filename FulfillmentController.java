@@ -27,10 +27,13 @@ import com.domainname.next.shippingapi.constant.PatternConstants;
 import com.domainname.next.shippingapi.enums.SiteID;
 import com.domainname.next.shippingapi.resources.request.FulfillmentMethodPostRequest;
 import com.domainname.next.shippingapi.resources.request.FulfillmentPatchRequest;
+import com.domainname.next.shippingapi.resources.response.BulkImportResult;
 import com.domainname.next.shippingapi.resources.response.FulfillmentMethodsResponse;
+import com.domainname.next.shippingapi.service.BulkImportService;
 import com.domainname.next.shippingapi.service.FulfillmentService;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -40,9 +43,11 @@ import reactor.core.publisher.Mono;
 public class FulfillmentController {
 
   private final FulfillmentService fulfillmentService;
+  private final BulkImportService bulkImportService;
 
-  public FulfillmentController(FulfillmentService fulfillmentService) {
+  public FulfillmentController(FulfillmentService fulfillmentService, BulkImportService bulkImportService) {
     this.fulfillmentService = fulfillmentService;
+    this.bulkImportService = bulkImportService;
   }
 
   @GetMapping(value = "/{siteId}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -66,6 +71,16 @@ public class FulfillmentController {
         .doOnError(throwable -> log.error("Error in saving fulfillment methods : {}", siteId));
   }
   
+  @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<BulkImportResult> importFulfillmentMethods(
+      @RequestBody Flux<FulfillmentMethodPostRequest> fulfillmentRequests) {
+    return bulkImportService.importFulfillmentMethods(fulfillmentRequests)
+        .doFirst(() -> log.info("Request received to import fulfillment methods"))
+        .doOnComplete(() -> log.info("Fulfillment methods import processed"))
+        .doOnError(throwable -> log.error("Error in importing fulfillment methods : {}", throwable.getMessage()));
+  }
+
   @PatchMapping(value = "/{fulfillmentId}", produces = MediaType.APPLICATION_JSON_VALUE)
   public Mono<ResponseEntity<FulfillmentMethodsResponse>> updateFulfillmentMethod(
       @PathVariable @NotBlank(message = REQUIRED_FIELD_CODE) @Pattern(regexp = PatternConstants.UUID_PATTERN, message = INVALID_FIELD_CODE) String fulfillmentId,
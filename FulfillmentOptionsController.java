@@ -9,6 +9,7 @@ import javax.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -23,6 +24,7 @@ import com.domainname.next.shippingapi.resources.response.FulfillmentOptionsResp
 import com.domainname.next.shippingapi.service.FulfillmentOptionsService;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -43,9 +45,34 @@ public class FulfillmentOptionsController {
       @FulfillmentCollectionPattern(targetClassType = FulfillmentType.class, message = INVALID_FIELD_CODE) @RequestParam(value = "embed", required = false) List<String> embed) {
     String siteId = shippingOptionsRequest.getSiteId();
     return fulfillmentOptionsService.createFulfillmentOptions(shippingOptionsRequest, embed)
-        .doFirst(() -> log.info("Request received to get fulfillment Options {}", siteId))
+        .doFirst(() -> log.debug("Request received to get fulfillment Options {}", siteId))
         .map(fulfillmentOptions -> ResponseEntity.status(HttpStatus.OK).body(fulfillmentOptions))
-        .doOnSuccess(request -> log.info("Fulfillment options retrieved successfully : {}", siteId))
+        .doOnSuccess(request -> log.debug("Fulfillment options retrieved successfully : {}", siteId))
         .doOnError(throwable -> log.error("Error in retrieving fulfillment options : {}", siteId));
   }
+
+  @PostMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<Object>> streamFulfillmentOptionsEvents(
+      @Valid @RequestBody ShippingOptionsPostRequest shippingOptionsRequest,
+      @FulfillmentCollectionPattern(targetClassType = FulfillmentType.class, message = INVALID_FIELD_CODE)
+      @RequestParam(value = "embed", required = false) List<String> embed) {
+    return OptionsStream.serverSentEvents(streamFulfillmentOptions(shippingOptionsRequest, embed));
+  }
+
+  @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<Object> streamFulfillmentOptionsNdjson(
+      @Valid @RequestBody ShippingOptionsPostRequest shippingOptionsRequest,
+      @FulfillmentCollectionPattern(targetClassType = FulfillmentType.class, message = INVALID_FIELD_CODE)
+      @RequestParam(value = "embed", required = false) List<String> embed) {
+    return OptionsStream.ndjson(streamFulfillmentOptions(shippingOptionsRequest, embed));
+  }
+
+  private Flux<FulfillmentOptionsResponse> streamFulfillmentOptions(ShippingOptionsPostRequest shippingOptionsRequest,
+      List<String> embed) {
+    String siteId = shippingOptionsRequest.getSiteId();
+    return fulfillmentOptionsService.streamFulfillmentOptions(shippingOptionsRequest, embed)
+        .doFirst(() -> log.debug("Request received to stream fulfillment Options {}", siteId))
+        .doOnComplete(() -> log.debug("Fulfillment options streamed successfully : {}", siteId))
+        .doOnError(throwable -> log.error("Error in streaming fulfillment options : {}", siteId));
+  }
 }
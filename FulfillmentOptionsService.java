@@ -5,9 +5,9 @@ import com.domainname.next.shippingapi.entity.SiteId;
 import com.domainname.next.shippingapi.enums.FulfillmentType;
 import com.domainname.next.shippingapi.enums.LineType;
 import com.domainname.next.shippingapi.exception.NotFoundException;
-import com.domainname.next.shippingapi.repository.FulfillmentMethodsRepository;
-import com.domainname.next.shippingapi.repository.SiteIdRepository;
+import com.domainname.next.shippingapi.filter.RequestEvent;
 import com.domainname.next.shippingapi.resources.request.ProductLine;
+import com.domainname.next.shippingapi.resources.dto.SiteConfigurationSnapshot;
 import com.domainname.next.shippingapi.resources.request.ShippingOptionsPostRequest;
 import com.domainname.next.shippingapi.resources.response.FulfillmentOptionsResponse;
 import com.domainname.next.shippingapi.util.ShippingOptionsUtil;
@@ -23,7 +23,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Predicate;
-import java.util.stream.Stream;
 
 import static com.domainname.next.shippingapi.constant.ErrorConstants.NOT_FOUND_ANY_FULFILLMENT_METHOD;
 import static com.domainname.next.shippingapi.constant.ErrorConstants.NOT_FOUND_CODE;
@@ -33,8 +32,7 @@ import static com.domainname.next.shippingapi.constant.ErrorConstants.NOT_FOUND_
 @Slf4j
 public class FulfillmentOptionsService {
 
-  private final SiteIdRepository siteIdRepository;
-  private final FulfillmentMethodsRepository fulfillmentMethodsRepository;
+  private final SiteConfigurationCache siteConfigurationCache;
   private final FulfillmentOptionsServiceHelper fulfillmentOptionsServiceHelper;
 
 
@@ -43,47 +41,53 @@ public class FulfillmentOptionsService {
       List<String> embed
   ) {
 
-    log.info("Processing createFulfillmentOptions for shippingOptionsRequest : {}", shippingOptionsRequest);
-    String siteId = shippingOptionsRequest.getSiteId();
-    List<String> fulfillmentTypes = Stream.of(FulfillmentType.values()).map(FulfillmentType::getValue)
-        .toList();
-    return siteIdRepository.findByName(siteId)
-        .zipWhen(siteIdResponse -> this.getEnabledFulfillmentOptionsForSiteIdMap(
-            siteIdResponse,
-            fulfillmentTypes
-        ))
-        .doFirst(() -> log.debug("Processing Fulfillment Options request for siteId : {}", siteId))
-        .flatMap(siteIdAndEnabledFulfillmentOptionsTuple ->
-                     Optional.ofNullable(embed)
-                         .filter(Predicate.not(List::isEmpty))
-                         .map(selectedEmbedOptions ->
-                                  this.createSelectedFulfillmentOptions(
-                                      shippingOptionsRequest,
-                                      siteIdAndEnabledFulfillmentOptionsTuple.getT1(),
-                                      siteIdAndEnabledFulfillmentOptionsTuple.getT2(),
-                                      selectedEmbedOptions
-                                  ))
-                         .orElseGet(() -> this.createAllFulfillmentOptions(
-                             shippingOptionsRequest,
-                             siteIdAndEnabledFulfillmentOptionsTuple.getT1(),
-                             siteIdAndEnabledFulfillmentOptionsTuple.getT2()
-                         ))
+    log.debug("Processing createFulfillmentOptions for shippingOptionsRequest : {}", shippingOptionsRequest);
+    return getSiteConfiguration(shippingOptionsRequest.getSiteId())
+        .flatMap(siteConfiguration -> fulfillmentOptions(shippingOptionsRequest, embed, siteConfiguration)
                          .collectList()
                          .map(shippingOptionsResponse -> fulfillmentOptionsServiceHelper.sortFulfillmentOptionsResponse(
                              shippingOptionsResponse,
-                             siteIdAndEnabledFulfillmentOptionsTuple.getT2()
+                             siteConfiguration.getEnabledFulfillmentOptions()
                          )));
   }
 
-  private Mono<Map<String, FulfillmentOption>> getEnabledFulfillmentOptionsForSiteIdMap(SiteId siteId, List<String> fulfillmentTypes) {
-    return fulfillmentMethodsRepository.findBySiteIdAndFulfilmentType(siteId.getId(), fulfillmentTypes)
-        .filter(fulfillmentOption -> isFulfillmentEnabled(fulfillmentOption.getFulfillmentType(), siteId.getFulfillmentMethodsEnabled()))
-        .collectList()
-        .map(fulfillmentOptionsServiceHelper::prepareFulfillmentOptions);
+  /**
+   * Streaming variant of {@link #createFulfillmentOptions}: every option is emitted as soon as its fulfillment type
+   * completes instead of being collected and sorted.
+   */
+  public Flux<FulfillmentOptionsResponse> streamFulfillmentOptions (
+      ShippingOptionsPostRequest shippingOptionsRequest,
+      List<String> embed
+  ) {
+
+    log.debug("Processing streamFulfillmentOptions for shippingOptionsRequest : {}", shippingOptionsRequest);
+    return getSiteConfiguration(shippingOptionsRequest.getSiteId())
+        .flatMapMany(siteConfiguration -> fulfillmentOptions(shippingOptionsRequest, embed, siteConfiguration));
+  }
+
+  private Mono<SiteConfigurationSnapshot> getSiteConfiguration(String siteId) {
+    return RequestEvent.timed(RequestEvent.STAGE_SITE_CONFIGURATION,
+            siteConfigurationCache.getSiteConfiguration(siteId))
+        .doFirst(() -> log.debug("Processing Fulfillment Options request for siteId : {}", siteId));
   }
 
-  private static boolean isFulfillmentEnabled(String fulfillmentName, List<String> fulfillmentMethodsEnabled) {
-    return fulfillmentMethodsEnabled.contains(fulfillmentName);
+  private Flux<FulfillmentOptionsResponse> fulfillmentOptions(ShippingOptionsPostRequest shippingOptionsRequest,
+                                                              List<String> embed,
+                                                              SiteConfigurationSnapshot siteConfiguration) {
+    return Optional.ofNullable(embed)
+        .filter(Predicate.not(List::isEmpty))
+        .map(selectedEmbedOptions ->
+                 this.createSelectedFulfillmentOptions(
+                     shippingOptionsRequest,
+                     siteConfiguration.getSiteId(),
+                     siteConfiguration.getEnabledFulfillmentOptions(),
+                     selectedEmbedOptions
+                 ))
+        .orElseGet(() -> this.createAllFulfillmentOptions(
+            shippingOptionsRequest,
+            siteConfiguration.getSiteId(),
+            siteConfiguration.getEnabledFulfillmentOptions()
+        ));
   }
 
   private Flux<FulfillmentOptionsResponse> createSelectedFulfillmentOptions(ShippingOptionsPostRequest shippingOptionsRequest,
@@ -1,19 +1,23 @@
 package com.domainname.next.shippingapi.service;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import com.domainname.next.shippingapi.config.PudoSpeculationProperties;
 import com.domainname.next.shippingapi.entity.FulfillmentOption;
 import com.domainname.next.shippingapi.entity.SiteId;
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
 import com.domainname.next.shippingapi.handler.digital.DigitalServiceHandler;
 import com.domainname.next.shippingapi.handler.pudo.FulfillmentOptionsPUDOSiteIdHandler;
 import com.domainname.next.shippingapi.handler.pudo.PUDOServiceHandler;
@@ -23,21 +27,43 @@ import com.domainname.next.shippingapi.resources.request.ShippingOptionsPostRequ
 import com.domainname.next.shippingapi.resources.response.FulfillmentOptionsResponse;
 import com.domainname.next.shippingapi.util.ShippingOptionsUtil;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.util.StringUtils;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
 
 
-@AllArgsConstructor
 @Service
 @Slf4j
 public class FulfillmentOptionsServiceHelper {
 
+  private static final String SPECULATION_METRIC = "pudo_speculation";
+
   private final ShippingOptionsValidationService shippingOptionsValidationService;
   private final PUDOServiceHandler pudoServiceHandler;
   private final FulfillmentOptionsPUDOSiteIdHandler fulfillmentOptionsPUDOSiteIdHandler;
   private final DigitalServiceHandler digitalServiceHandler;
+  private final PudoSpeculationProperties pudoSpeculationProperties;
+  private final MeterRegistry meterRegistry;
+  private final PudoSpeculationBudget pudoSpeculationBudget;
+
+  public FulfillmentOptionsServiceHelper(ShippingOptionsValidationService shippingOptionsValidationService,
+                                         PUDOServiceHandler pudoServiceHandler,
+                                         FulfillmentOptionsPUDOSiteIdHandler fulfillmentOptionsPUDOSiteIdHandler,
+                                         DigitalServiceHandler digitalServiceHandler,
+                                         PudoSpeculationProperties pudoSpeculationProperties,
+                                         MeterRegistry meterRegistry) {
+    this.shippingOptionsValidationService = shippingOptionsValidationService;
+    this.pudoServiceHandler = pudoServiceHandler;
+    this.fulfillmentOptionsPUDOSiteIdHandler = fulfillmentOptionsPUDOSiteIdHandler;
+    this.digitalServiceHandler = digitalServiceHandler;
+    this.pudoSpeculationProperties = pudoSpeculationProperties;
+    this.meterRegistry = meterRegistry;
+    this.pudoSpeculationBudget = new PudoSpeculationBudget(pudoSpeculationProperties);
+  }
 
   public Mono<FulfillmentOptionsResponse> createDPEPUDO(ShippingOptionsPostRequest shippingOptionsRequest,
                                                          FulfillmentOption pudoFulfillmentOption,
@@ -46,6 +72,75 @@ public class FulfillmentOptionsServiceHelper {
       return pudoServiceHandler.createPUDO(shippingOptionsRequest, pudoFulfillmentOption,
           siteIdResponse, new CompleteLocation());
     }
+    Mono<FulfillmentOptionsResponse> siteIdPUDO = Mono.defer(() -> fulfillmentOptionsPUDOSiteIdHandler
+        .createPUDOSiteIdFullfillmentOptionsResponse(pudoFulfillmentOption, shippingOptionsRequest, siteIdResponse));
+    if (!pudoSpeculationProperties.isEnabled()) {
+      return createDPEPUDO(shippingOptionsRequest, pudoFulfillmentOption, siteIdResponse, siteIdPUDO);
+    }
+    return Mono.defer(() -> {
+      pudoSpeculationBudget.onRequest();
+      if (pudoSpeculationBudget.tryAcquire()) {
+        return createSpeculativeDPEPUDO(shippingOptionsRequest, pudoFulfillmentOption, siteIdResponse, siteIdPUDO);
+      }
+      recordSpeculation("skipped");
+      return createDPEPUDO(shippingOptionsRequest, pudoFulfillmentOption, siteIdResponse, siteIdPUDO);
+    });
+  }
+
+  /**
+   * Starts the site id lookup right away, concurrently with geocoding. If the decision below selects it, its result
+   * is used as is (or awaited); otherwise it is cancelled. A speculative lookup that fails or runs past its budget
+   * is redone the regular way when it turns out to be needed. A cancelled request cancels it whether it was selected
+   * or not. The budget token taken for it is handed back unless it was wasted.
+   */
+  private Mono<FulfillmentOptionsResponse> createSpeculativeDPEPUDO(ShippingOptionsPostRequest shippingOptionsRequest,
+                                                                     FulfillmentOption pudoFulfillmentOption,
+                                                                     SiteId siteIdResponse,
+                                                                     Mono<FulfillmentOptionsResponse> siteIdPUDO) {
+    return Mono.deferContextual(context -> {
+      Sinks.One<FulfillmentOptionsResponse> speculated = Sinks.one();
+      AtomicBoolean selected = new AtomicBoolean();
+      Disposable speculation = siteIdPUDO
+          .timeout(Duration.ofMillis(pudoSpeculationProperties.getBudgetMillis()))
+          .contextWrite(context)
+          .subscribe(speculated::tryEmitValue, speculated::tryEmitError, speculated::tryEmitEmpty);
+      Mono<FulfillmentOptionsResponse> speculativeSiteIdPUDO = Mono.defer(() -> {
+        // an empty site id response is followed by the fallback, which selects the same lookup a second time
+        boolean first = selected.compareAndSet(false, true);
+        if (first) {
+          pudoSpeculationBudget.release();
+        }
+        return speculated.asMono()
+            .doOnSuccess(ignored -> {
+              if (first) {
+                recordSpeculation("won");
+              }
+            })
+            .onErrorResume(throwable -> {
+              log.debug("Speculative site id PUDO lookup failed, running it again : {}", throwable.getMessage());
+              if (first) {
+                recordSpeculation("failed");
+              }
+              return siteIdPUDO;
+            });
+      });
+      return createDPEPUDO(shippingOptionsRequest, pudoFulfillmentOption, siteIdResponse, speculativeSiteIdPUDO)
+          .doFinally(signalType -> {
+            // a cancelled caller no longer waits for a selected lookup either, nothing else would stop it
+            if (signalType == SignalType.CANCEL || !selected.get()) {
+              speculation.dispose();
+            }
+            if (!selected.get()) {
+              recordSpeculation("wasted");
+            }
+          });
+    });
+  }
+
+  private Mono<FulfillmentOptionsResponse> createDPEPUDO(ShippingOptionsPostRequest shippingOptionsRequest,
+                                                         FulfillmentOption pudoFulfillmentOption,
+                                                         SiteId siteIdResponse,
+                                                         Mono<FulfillmentOptionsResponse> siteIdPUDO) {
     return shippingOptionsValidationService
         .validatePUDODPERequestAndFetchGeocodeResult(shippingOptionsRequest,
             siteIdResponse.getCountryName())
@@ -54,8 +149,7 @@ public class FulfillmentOptionsServiceHelper {
             .validateGeocodeResult(shippingOptionsRequest, geoCodeResult, siteIdResponse.getCountryName()))
         .flatMap(completeLocation -> {
           if (shippingOptionsValidationService.isSiteIdCall(shippingOptionsRequest, completeLocation, siteIdResponse)) {
-            return fulfillmentOptionsPUDOSiteIdHandler.createPUDOSiteIdFullfillmentOptionsResponse(
-                pudoFulfillmentOption, shippingOptionsRequest, siteIdResponse);
+            return siteIdPUDO;
           }
           return pudoServiceHandler.createPUDO(
               shippingOptionsRequest,
@@ -64,18 +158,22 @@ public class FulfillmentOptionsServiceHelper {
               completeLocation
           );
         })
-        .switchIfEmpty(Mono.defer(() -> fulfillmentOptionsPUDOSiteIdHandler.createPUDOSiteIdFullfillmentOptionsResponse(
-            pudoFulfillmentOption, shippingOptionsRequest, siteIdResponse)))
-        .doOnError(throwable -> log.error(
+        .switchIfEmpty(siteIdPUDO)
+        .doOnEach(RequestDiagnostics.logOnError((marker, throwable) -> log.error(
+            marker,
             "Validation error occurred during DPE PUDO flow : {}",
             throwable.getMessage()
-        ))
+        )))
         .onErrorResume(throwable -> ShippingOptionsUtil.buildFulfillmentOptionsEmptyResponse(
             pudoFulfillmentOption,
             shippingOptionsRequest
         ));
   }
 
+  private void recordSpeculation(String result) {
+    meterRegistry.counter(SPECULATION_METRIC, "result", result).increment();
+  }
+
   public Mono<FulfillmentOptionsResponse> createDigital(ShippingOptionsPostRequest shippingOptionsRequest,
                                                         List<ProductLine> digitalProductLines,
                                                         FulfillmentOption digitalFulfillmentOption,
@@ -0,0 +1,158 @@
+package com.domainname.next.shippingapi.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.domainname.next.shippingapi.TestHelper;
+import com.domainname.next.shippingapi.config.PudoSpeculationProperties;
+import com.domainname.next.shippingapi.entity.FulfillmentOption;
+import com.domainname.next.shippingapi.entity.SiteId;
+import com.domainname.next.shippingapi.handler.digital.DigitalServiceHandler;
+import com.domainname.next.shippingapi.handler.pudo.FulfillmentOptionsPUDOSiteIdHandler;
+import com.domainname.next.shippingapi.handler.pudo.PUDOServiceHandler;
+import com.domainname.next.shippingapi.resources.dto.CompleteLocation;
+import com.domainname.next.shippingapi.resources.request.ShippingOptionsPostRequest;
+import com.domainname.next.shippingapi.resources.response.FulfillmentOptionsResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+class FulfillmentOptionsServiceHelperTest extends TestHelper {
+
+  @Mock
+  ShippingOptionsValidationService shippingOptionsValidationService;
+
+  @Mock
+  PUDOServiceHandler pudoServiceHandler;
+
+  @Mock
+  FulfillmentOptionsPUDOSiteIdHandler fulfillmentOptionsPUDOSiteIdHandler;
+
+  @Mock
+  DigitalServiceHandler digitalServiceHandler;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ShippingOptionsPostRequest shippingOptionsRequest = Mockito.mock(ShippingOptionsPostRequest.class);
+  private final FulfillmentOption pudoFulfillmentOption = FulfillmentOption.builder().fulfillmentType("pudo").build();
+  private final SiteId siteId = buildSiteId();
+
+  private FulfillmentOptionsServiceHelper fulfillmentOptionsServiceHelper;
+
+  @BeforeEach
+  void setup() {
+    PudoSpeculationProperties properties = new PudoSpeculationProperties();
+    properties.setEnabled(true);
+    fulfillmentOptionsServiceHelper = new FulfillmentOptionsServiceHelper(shippingOptionsValidationService,
+        pudoServiceHandler, fulfillmentOptionsPUDOSiteIdHandler, digitalServiceHandler, properties, meterRegistry);
+  }
+
+  @Test
+  void testSpeculativeSiteIdLookupIsUsedWhenGeocodingReturnsNothing() {
+    FulfillmentOptionsResponse siteIdResponse = Mockito.mock(FulfillmentOptionsResponse.class);
+    Mockito.when(shippingOptionsValidationService.validatePUDODPERequestAndFetchGeocodeResult(Mockito.any(),
+        Mockito.any())).thenReturn(Mono.empty());
+    Mockito.when(fulfillmentOptionsPUDOSiteIdHandler.createPUDOSiteIdFullfillmentOptionsResponse(Mockito.any(),
+        Mockito.any(), Mockito.any())).thenReturn(Mono.just(siteIdResponse));
+
+    StepVerifier.create(fulfillmentOptionsServiceHelper.createDPEPUDO(shippingOptionsRequest, pudoFulfillmentOption,
+            siteId))
+        .expectNext(siteIdResponse)
+        .verifyComplete();
+
+    Mockito.verify(fulfillmentOptionsPUDOSiteIdHandler, Mockito.times(1))
+        .createPUDOSiteIdFullfillmentOptionsResponse(Mockito.any(), Mockito.any(), Mockito.any());
+    Assertions.assertEquals(1, meterRegistry.counter("pudo_speculation", "result", "won").count());
+  }
+
+  @Test
+  void testSpeculativeSiteIdLookupIsCancelledWhenPUDOServiceIsSelected() {
+    FulfillmentOptionsResponse pudoResponse = Mockito.mock(FulfillmentOptionsResponse.class);
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Mockito.when(shippingOptionsValidationService.validatePUDODPERequestAndFetchGeocodeResult(Mockito.any(),
+        Mockito.any())).thenReturn(Mono.just(buildGeoCodingResponse()));
+    Mockito.when(shippingOptionsValidationService.validateGeocodeResult(Mockito.any(), Mockito.any(),
+        Mockito.any())).thenReturn(Mono.just(new CompleteLocation()));
+    Mockito.when(shippingOptionsValidationService.isSiteIdCall(Mockito.any(), Mockito.any(), Mockito.any()))
+        .thenReturn(false);
+    Mockito.when(fulfillmentOptionsPUDOSiteIdHandler.createPUDOSiteIdFullfillmentOptionsResponse(Mockito.any(),
+        Mockito.any(), Mockito.any())).thenReturn(Mono.<FulfillmentOptionsResponse>never()
+            .doOnCancel(() -> cancelled.set(true)));
+    Mockito.when(pudoServiceHandler.createPUDO(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+        .thenReturn(Mono.just(pudoResponse));
+
+    StepVerifier.create(fulfillmentOptionsServiceHelper.createDPEPUDO(shippingOptionsRequest, pudoFulfillmentOption,
+            siteId))
+        .expectNext(pudoResponse)
+        .verifyComplete();
+
+    Assertions.assertTrue(cancelled.get());
+    Assertions.assertEquals(1, meterRegistry.counter("pudo_speculation", "result", "wasted").count());
+  }
+
+  @Test
+  void testSelectedSpeculativeLookupIsCancelledWithTheRequest() {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Mockito.when(shippingOptionsValidationService.validatePUDODPERequestAndFetchGeocodeResult(Mockito.any(),
+        Mockito.any())).thenReturn(Mono.just(buildGeoCodingResponse()));
+    Mockito.when(shippingOptionsValidationService.validateGeocodeResult(Mockito.any(), Mockito.any(),
+        Mockito.any())).thenReturn(Mono.just(new CompleteLocation()));
+    Mockito.when(shippingOptionsValidationService.isSiteIdCall(Mockito.any(), Mockito.any(), Mockito.any()))
+        .thenReturn(true);
+    Mockito.when(fulfillmentOptionsPUDOSiteIdHandler.createPUDOSiteIdFullfillmentOptionsResponse(Mockito.any(),
+        Mockito.any(), Mockito.any())).thenReturn(Mono.<FulfillmentOptionsResponse>never()
+            .doOnCancel(() -> cancelled.set(true)));
+
+    StepVerifier.create(fulfillmentOptionsServiceHelper.createDPEPUDO(shippingOptionsRequest, pudoFulfillmentOption,
+            siteId))
+        .expectSubscription()
+        .thenCancel()
+        .verify();
+
+    Assertions.assertTrue(cancelled.get());
+    Assertions.assertEquals(0, meterRegistry.counter("pudo_speculation", "result", "wasted").count());
+  }
+
+  @Test
+  void testSpeculationIsSkippedOnceTheWasteBudgetIsSpent() {
+    PudoSpeculationProperties properties = new PudoSpeculationProperties();
+    properties.setEnabled(true);
+    properties.setMaxWastedRatio(0.0);
+    properties.setMaxBudgetTokens(1.0);
+    fulfillmentOptionsServiceHelper = new FulfillmentOptionsServiceHelper(shippingOptionsValidationService,
+        pudoServiceHandler, fulfillmentOptionsPUDOSiteIdHandler, digitalServiceHandler, properties, meterRegistry);
+    FulfillmentOptionsResponse pudoResponse = Mockito.mock(FulfillmentOptionsResponse.class);
+    AtomicInteger lookups = new AtomicInteger();
+    Mockito.when(shippingOptionsValidationService.validatePUDODPERequestAndFetchGeocodeResult(Mockito.any(),
+        Mockito.any())).thenReturn(Mono.just(buildGeoCodingResponse()));
+    Mockito.when(shippingOptionsValidationService.validateGeocodeResult(Mockito.any(), Mockito.any(),
+        Mockito.any())).thenReturn(Mono.just(new CompleteLocation()));
+    Mockito.when(shippingOptionsValidationService.isSiteIdCall(Mockito.any(), Mockito.any(), Mockito.any()))
+        .thenReturn(false);
+    Mockito.when(fulfillmentOptionsPUDOSiteIdHandler.createPUDOSiteIdFullfillmentOptionsResponse(Mockito.any(),
+        Mockito.any(), Mockito.any())).thenReturn(Mono.<FulfillmentOptionsResponse>never()
+            .doOnSubscribe(ignored -> lookups.incrementAndGet()));
+    Mockito.when(pudoServiceHandler.createPUDO(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+        .thenReturn(Mono.just(pudoResponse));
+
+    for (int i = 0; i < 2; i++) {
+      StepVerifier.create(fulfillmentOptionsServiceHelper.createDPEPUDO(shippingOptionsRequest,
+              pudoFulfillmentOption, siteId))
+          .expectNext(pudoResponse)
+          .verifyComplete();
+    }
+
+    Assertions.assertEquals(1, lookups.get());
+    Assertions.assertEquals(1, meterRegistry.counter("pudo_speculation", "result", "wasted").count());
+    Assertions.assertEquals(1, meterRegistry.counter("pudo_speculation", "result", "skipped").count());
+  }
+}
@@ -34,17 +34,20 @@ public class FulfillmentService {
   private final FulfillmentPatchRequestConverter fulfillmentPatchRequestConverter;
   private final FulfillmentMethodsRepository fulfillmentMethodsRepository;
   private final SiteIdRepository siteIdRepository;
+  private final SiteConfigurationCache siteConfigurationCache;
   
   public FulfillmentService(FulfillmentResponseConverter fulfillmentResponseConverter,
       FulfillmentMethodPostRequestConverter fulfillmentMethodPostRequestConverter,
       FulfillmentPatchRequestConverter fulfillmentPatchRequestConverter,
       FulfillmentMethodsRepository fulfillmentMethodsRepository,
-      SiteIdRepository siteIdRepository) {
+      SiteIdRepository siteIdRepository,
+      SiteConfigurationCache siteConfigurationCache) {
     this.fulfillmentResponseConverter = fulfillmentResponseConverter;
     this.fulfillmentMethodPostRequestConverter = fulfillmentMethodPostRequestConverter;
     this.fulfillmentPatchRequestConverter = fulfillmentPatchRequestConverter;
     this.fulfillmentMethodsRepository = fulfillmentMethodsRepository;
     this.siteIdRepository = siteIdRepository;
+    this.siteConfigurationCache = siteConfigurationCache;
   }
 
   public Mono<List<FulfillmentMethodsResponse>> getFulfillmentMethods(String siteId) {
@@ -61,6 +64,7 @@ public class FulfillmentService {
     return siteIdRepository.findByName(siteId)
         .flatMap(fulfillment -> fulfillmentMethodsRepository.save(fulfillmentMethodPostRequestConverter.apply(fulfillmentRequests, fulfillment))
             .doFirst(() -> log.debug("Processing create Fulfillment Methods request : {}", siteId))
+            .doOnSuccess(savedFulfillment -> siteConfigurationCache.invalidate(siteId))
             .flatMap(response->fulfillmentResponseConverter.buildFulfillmentMethodsResponse(response, siteId)));
   }
  
@@ -74,6 +78,7 @@ public class FulfillmentService {
             .error(new NotFoundException(new HttpClientErrorException(HttpStatus.NOT_FOUND), RECORD_NOT_FOUND_CODE,fulfillmentId.toString())))
         .flatMap(tuple -> fulfillmentPatchRequestConverter.apply(tuple.getT1(), fulfillmentPatchRequest)
         .flatMap(fulfillmentMethodsRepository::save)
+        .doOnSuccess(savedFulfillment -> siteConfigurationCache.invalidate(tuple.getT2().getName()))
         .flatMap(fulfillmentResponse -> fulfillmentResponseConverter.buildFulfillmentMethodsResponse(fulfillmentResponse, tuple.getT2().getName())));
   }
   
@@ -4,10 +4,10 @@ package com.domainname.next.shippingapi.filter;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Publisher;
+import org.slf4j.Marker;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferFactory;
-import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
@@ -20,9 +20,6 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SignalType;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Objects;
-
 /**
  *
  */
@@ -51,48 +48,69 @@ public class LoggingFilter implements WebFilter, Ordered {
       request.mutate().header("api-key", "************");
     }
 
-    final StringBuilder cachedResponse = new StringBuilder();
+    final BoundedBodyCapture cachedResponse = new BoundedBodyCapture(mdcManager.getResponseBodyMaxBytes());
+    RequestDiagnostics diagnostics = mdcManager.requestDiagnostics(exchange);
+    RequestEvent event = new RequestEvent();
+    long contentLength = request.getHeaders().getContentLength();
+    if (contentLength > 0) {
+      event.addRequestBytes(contentLength);
+    }
     ServerWebExchange mutatedServerWebExchange = exchange.mutate()
-        .response(getCachingResponseDecorator(exchange.getResponse(), cachedResponse))
+        .response(getCachingResponseDecorator(exchange.getResponse(), cachedResponse,
+            mdcManager.isResponseBodySampled(), event))
         .build();
-    mdcManager.insertRequestMDC(exchange);
     StopWatch stopWatch = new StopWatch();
     stopWatch.start();
 
     return chain.filter(mutatedServerWebExchange)
         .doFinally((SignalType signalType) ->
-          logResponse(exchange, cachedResponse, stopWatch)
-        );
+          logResponse(exchange, diagnostics, event, signalType, cachedResponse, stopWatch)
+        )
+        .contextWrite(context -> context
+            .put(RequestDiagnostics.class, diagnostics)
+            .put(RequestEvent.class, event));
   }
 
-  private void logResponse (ServerWebExchange exchange, StringBuilder cachedResponse, StopWatch stopWatch) {
+  private void logResponse (ServerWebExchange exchange, RequestDiagnostics diagnostics, RequestEvent event,
+      SignalType signalType, BoundedBodyCapture cachedResponse, StopWatch stopWatch) {
     stopWatch.stop();
-    mdcManager.insertResponseMDC(exchange, cachedResponse);
-    logResponseBasedOnStatus(exchange, stopWatch);
-    mdcManager.clearMDC();
-    cachedResponse.setLength(0);
+    // the markers are only serialized if the statement below is actually logged
+    Marker marker = diagnostics.marker()
+        .and(mdcManager.responseMarker(exchange, cachedResponse))
+        .and(event.marker(outcome(exchange, signalType)));
+    logResponseBasedOnStatus(exchange, marker, stopWatch);
+  }
+
+  private static String outcome(ServerWebExchange exchange, SignalType signalType) {
+    if (signalType == SignalType.CANCEL) {
+      return "CANCELLED";
+    }
+    HttpStatus status = exchange.getResponse().getStatusCode();
+    if (status == null) {
+      return signalType == SignalType.ON_ERROR ? "ERROR" : "UNKNOWN";
+    }
+    return status.is5xxServerError() ? "ERROR" : status.is4xxClientError() ? "CLIENT_ERROR" : "SUCCESS";
   }
 
-  private void logResponseBasedOnStatus (ServerWebExchange exchange, StopWatch stopWatch) {
+  private void logResponseBasedOnStatus (ServerWebExchange exchange, Marker marker, StopWatch stopWatch) {
     if (exchange.getResponse().getStatusCode() != null) {
       var logMessage = "Request executed in {} ms";
       if (exchange.getResponse().getStatusCode().is4xxClientError()) {
         log.warn(
+            marker,
             logMessage,
             stopWatch.getTotalTimeMillis()
         );
       } else if (exchange.getResponse().getStatusCode().is5xxServerError()) {
         log.error(
+            marker,
             logMessage,
             stopWatch.getTotalTimeMillis()
         );
-      } else if (log.isDebugEnabled()) {
-        log.debug(
-            logMessage,
-            stopWatch.getTotalTimeMillis()
-        );
-      } else if (mdcManager.isLogBody) {
+      } else {
+        // the one INFO line of a successful request, everything else about it is on the event
         log.info(
+            marker,
             logMessage,
             stopWatch.getTotalTimeMillis()
         );
@@ -100,32 +118,20 @@ public class LoggingFilter implements WebFilter, Ordered {
     }
   }
 
-  private static ServerHttpResponse getCachingResponseDecorator(ServerHttpResponse response,
-      StringBuilder cachedContent) {
+  private ServerHttpResponse getCachingResponseDecorator(ServerHttpResponse response,
+      BoundedBodyCapture cachedContent, boolean sampled, RequestEvent event) {
     return new ServerHttpResponseDecorator(response) {
       @Override
       public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
-        DataBufferFactory bufferFactory = super.bufferFactory();
-        return super.writeWith(Flux.from(body)
-                                   .map((DataBuffer dataBuffer) -> {
-                                     try {
-                                       byte[] content = readDataBuffer(dataBuffer);
-                                       cachedContent.append(new String(content, StandardCharsets.UTF_8));
-                                       return bufferFactory.wrap(content);
-                                     } finally {
-                                       DataBufferUtils.release(dataBuffer);
-                                     }
-                                   }));
+        // the status is set before the body is written, error bodies are always kept for the error log
+        HttpStatus status = getStatusCode();
+        Flux<? extends DataBuffer> counted = Flux.from(body)
+            .doOnNext(dataBuffer -> event.addResponseBytes(dataBuffer.readableByteCount()));
+        if (mdcManager.isLogBody() && (sampled || (status != null && status.isError()))) {
+          counted = counted.doOnNext(cachedContent::capture);
+        }
+        return RequestEvent.timed(RequestEvent.STAGE_RESPONSE_WRITE, super.writeWith(counted));
       }
     };
   }
-
-  private static byte[] readDataBuffer(DataBuffer dataBuffer) {
-    if (Objects.nonNull(dataBuffer)) {
-      byte[] content = new byte[dataBuffer.readableByteCount()];
-      dataBuffer.read(content);
-      return content;
-    }
-    return new byte[]{};
-  }
 }
@@ -1,46 +1,57 @@
 package com.domainname.next.shippingapi.filter;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.logstash.logback.marker.LogstashMarker;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.api.Response;
-import org.slf4j.MDC;
+import org.eclipse.jetty.http.HttpField;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
 import java.net.URI;
-import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-
-
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the diagnostic fields of inbound requests and outgoing calls. The request fields travel in the Reactor
+ * Context as {@link RequestDiagnostics} and are attached to the log events that need them as markers, serialized only
+ * when those events are encoded. Nothing is put in the MDC, log statements inside the pipeline of a request attach
+ * its correlation fields with {@link RequestDiagnostics#correlationMarker}.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class MDCManager {
 
-  // MDC constants
+  // log event field names
   public static final String REQUEST_URL = "request.url";
   public static final String REQUEST_HEADERS = "request.headers";
   public static final String REQUEST_BODY = "request.body";
   public static final String REQUEST_METHOD = "request.method";
 
   public static final String OUTGOING_REQUEST_HEADERS = "outgoingRequest.request.headers";
-  public static final String OUTGOING_REQUEST_BODY = "outgoingRequest.request.body";
   public static final String OUTGOING_REQUEST_METHOD = "outgoingRequest.request.method";
   public static final String OUTGOING_REQUEST_URL = "outgoingRequest.request.url";
 
@@ -60,164 +71,156 @@ public class MDCManager {
   private ObjectMapper mapper;
 
   @Value("${logging.logBody}")
-  boolean isLogBody;
+  private boolean isLogBody;
+
+  @Value("${logging.response-body.max-bytes:8192}")
+  private int responseBodyMaxBytes;
+
+  // fraction of successful responses whose body is captured, error responses are always captured
+  @Value("${logging.response-body.sample-rate:1.0}")
+  private double responseBodySampleRate;
 
   @Value("${logging.sanitize.headers}")
   private String sanitizedHeaders;
   @Value("${logging.sanitize.query-param}")
   private String sanitizeQueryParam;
 
-  public void insertResponseMDC(ServerWebExchange exchange, StringBuilder cachedResponse) {
-    putResponseStatusCode(exchange);
-    putResponseHeaders(exchange.getResponse());
-    if (isLogBody) {
-      putSanitizedResponse(cachedResponse);
-    }
-  }
-
-
-  public void insertOutgoingClientRequest (Request clientRequest) {
-    MDC.put(OUTGOING_REQUEST_METHOD,
-            Optional.of(clientRequest.getMethod())
-                .orElse(null));
-
-    MDC.put(OUTGOING_REQUEST_URL,
-            Optional.of(clientRequest.getURI())
-                .map(uri -> {
-                  if (uri.toString().contains(sanitizeQueryParam)) {
-                    UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromUri(uri);
-                    return uriBuilder.replaceQueryParam(sanitizeQueryParam, "****").build().toUri();
-                  } else {
-                    return uri;
-                  }
-                })
-                .map(URI::toString)
-                .orElse(null));
-    clientRequest.getHeaders().stream()
-        .filter(header -> !sanitizedHeaders.contains(header.getName().toLowerCase()))
-        .forEach(httpField -> MDC.put(OUTGOING_REQUEST_HEADERS + "." + httpField.getName(), httpField.getValue()));
-  }
-
-  public void insertOutgoingClientResponse (Response response, ByteBuffer buffer) {
-    response.getHeaders().stream()
-        .filter(header -> !sanitizedHeaders.contains(header.getName().toLowerCase()))
-            .forEach(httpHeader -> MDC.put(OUTGOING_RESPONSE_HEADERS + "." + httpHeader.getName(), httpHeader.getValue()));
-    MDC.put(OUTGOING_RESPONSE_STATUS, Integer.toString(response.getStatus()));
-    if (isLogBody) {
-      MDC.put(OUTGOING_RESPONSE_BODY, StandardCharsets.UTF_8.decode(buffer).toString());
-    }
-  }
+  private volatile Set<String> sanitizedHeaderNames;
 
-  public void cleanupOutgoingRequestFields() {
-    MDC.remove(OUTGOING_RESPONSE_BODY);
-    MDC.remove(OUTGOING_RESPONSE_HEADERS);
-    MDC.remove(OUTGOING_RESPONSE_STATUS);
-    MDC.remove(OUTGOING_REQUEST_BODY);
-    MDC.remove(OUTGOING_REQUEST_URL);
-    MDC.remove(OUTGOING_REQUEST_METHOD);
-    MDC.remove(OUTGOING_REQUEST_HEADERS);
+  public RequestDiagnostics requestDiagnostics(ServerWebExchange exchange) {
+    ServerHttpRequest request = exchange.getRequest();
+    RequestDiagnostics.RequestDiagnosticsBuilder diagnostics = RequestDiagnostics.builder()
+        .url(request.getURI().toString())
+        .method(Optional.ofNullable(request.getMethod()).map(Enum::name).orElse(null))
+        .headers(HttpHeaders.readOnlyHttpHeaders(request.getHeaders()))
+        .sanitizedHeaders(sanitizedHeaders());
+    putSanitizedRequest(exchange, diagnostics);
+    return diagnostics.build();
   }
 
-  public Map<String, String> getMDCFields() {
-    return MDC.getCopyOfContextMap();
+  public LogstashMarker responseMarker(ServerWebExchange exchange, BoundedBodyCapture cachedResponse) {
+    ServerHttpResponse response = exchange.getResponse();
+    Integer statusCode = response.getRawStatusCode();
+    HttpHeaders headers = response.getHeaders();
+    return new DiagnosticsMarker(generator -> {
+      DiagnosticsMarker.writeStringField(generator, RESPONSE_STATUS_CODE,
+          Optional.ofNullable(statusCode).map(Object::toString).orElse(null));
+      DiagnosticsMarker.writeHeaders(generator, RESPONSE_HEADERS, headers.entrySet(), sanitizedHeaders());
+      if (isLogBody && !cachedResponse.isEmpty()) {
+        generator.writeStringField(RESPONSE_BODY, cachedResponse.toString());
+      }
+    });
   }
 
-  public void insertRequestMDC(ServerWebExchange exchange) {
-    putRequestURL(exchange.getRequest());
-    putMethod(exchange.getRequest());
-    putRequestHeaders(exchange.getRequest());
-    putSanitizedRequest(exchange);
+  public LogstashMarker outgoingCallMarker(Request clientRequest, Response response,
+      BoundedBodyCapture responseContent) {
+    return new DiagnosticsMarker(generator -> {
+      DiagnosticsMarker.writeStringField(generator, OUTGOING_REQUEST_METHOD, clientRequest.getMethod());
+      DiagnosticsMarker.writeStringField(generator, OUTGOING_REQUEST_URL, sanitizeUri(clientRequest.getURI()));
+      DiagnosticsMarker.writeHeaders(generator, OUTGOING_REQUEST_HEADERS, headerEntries(clientRequest.getHeaders()),
+          sanitizedHeaders());
+      if (response != null) {
+        DiagnosticsMarker.writeHeaders(generator, OUTGOING_RESPONSE_HEADERS, headerEntries(response.getHeaders()),
+            sanitizedHeaders());
+        generator.writeStringField(OUTGOING_RESPONSE_STATUS, Integer.toString(response.getStatus()));
+      }
+      if (isLogBody && !responseContent.isEmpty()) {
+        generator.writeStringField(OUTGOING_RESPONSE_BODY, responseContent.toString());
+      }
+    });
   }
 
-  public void clearMDC() {
-    MDC.remove(REQUEST_URL);
-    MDC.remove(REQUEST_METHOD);
-    MDC.remove(REQUEST_HEADERS);
-    MDC.remove(REQUEST_BODY);
-    MDC.remove(REQUEST_SITE_ID);
-    MDC.remove(REQUEST_CHANNEL);
-    MDC.remove(REQUEST_BASKET_REFERENCE_ID);
-    MDC.remove(RESPONSE_STATUS_CODE);
-    MDC.remove(RESPONSE_BODY);
-    MDC.remove(RESPONSE_HEADERS);
+  private String sanitizeUri(URI uri) {
+    if (uri == null) {
+      return null;
+    }
+    if (uri.toString().contains(sanitizeQueryParam)) {
+      return UriComponentsBuilder.fromUri(uri).replaceQueryParam(sanitizeQueryParam, "****").build().toUri()
+          .toString();
+    }
+    return uri.toString();
   }
 
-  private void putSanitizedRequest(ServerWebExchange exchange) {
-    String body = sanitizeRequest(exchange);
-    LoggingFulfillmentOptionsRequestParameter parameters = null;
-    try {
-      parameters = mapper.readValue(body, LoggingFulfillmentOptionsRequestParameter.class);
-      MDC.put(REQUEST_SITE_ID, parameters.getSiteId());
-      MDC.put(REQUEST_CHANNEL, parameters.getChannel());
-      MDC.put(REQUEST_BASKET_REFERENCE_ID, parameters.getBasketReferenceId());
-      if (isLogBody) {
-        MDC.put(REQUEST_BODY, body);
-      }
-    } catch (JsonProcessingException e) {
-      log.warn("Cannot log body ", e);
+  private Set<String> sanitizedHeaders() {
+    if (sanitizedHeaderNames == null) {
+      sanitizedHeaderNames = Arrays.stream(sanitizedHeaders.split(","))
+          .map(header -> header.trim().toLowerCase(Locale.ROOT))
+          .collect(Collectors.toUnmodifiableSet());
     }
+    return sanitizedHeaderNames;
   }
 
-  private void putSanitizedResponse(StringBuilder cachedResponse) {
-    MDC.put(RESPONSE_BODY, cachedResponse.toString());
+  private static List<Map.Entry<String, List<String>>> headerEntries(Iterable<HttpField> fields) {
+    HttpHeaders headers = new HttpHeaders();
+    fields.forEach(field -> headers.add(field.getName(), field.getValue()));
+    return List.copyOf(headers.entrySet());
   }
 
-  private String sanitizeRequest(ServerWebExchange exchange) {
-    // Request is cached in attributes by default
-    DataBuffer dataBuffer =
-        exchange.getAttribute(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
-    byte[] content = readDataBuffer(dataBuffer);
-    return new String(content, StandardCharsets.UTF_8);
+  public boolean isLogBody() {
+    return isLogBody;
   }
 
-  private void putResponseStatusCode(ServerWebExchange exchange) {
-    MDC.put(RESPONSE_STATUS_CODE,
-            Optional.ofNullable(exchange.getResponse().getRawStatusCode())
-                .map(Object::toString)
-                .orElse(null));
+  public int getResponseBodyMaxBytes() {
+    return responseBodyMaxBytes;
   }
 
-  private byte[] readDataBuffer(DataBuffer dataBuffer) {
-    if (Objects.nonNull(dataBuffer)) {
-      byte[] content = new byte[dataBuffer.readableByteCount()];
-      dataBuffer.read(content);
-      return content;
-    }
-    return new byte[]{};
+  public boolean isResponseBodySampled() {
+    return responseBodySampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < responseBodySampleRate;
   }
 
-  private void putMethod(ServerHttpRequest request) {
-    HttpMethod method = request.getMethod();
-    if (Objects.nonNull(method)) {
-      MDC.put(REQUEST_METHOD, method.name());
+  private void putSanitizedRequest(ServerWebExchange exchange,
+      RequestDiagnostics.RequestDiagnosticsBuilder diagnostics) {
+    // Request is cached in attributes by default, absent for requests without a body
+    DataBuffer dataBuffer = exchange.getAttribute(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+    if (Objects.isNull(dataBuffer) || dataBuffer.readableByteCount() == 0) {
+      return;
     }
-  }
-
-  private void putRequestURL(ServerHttpRequest request) {
-    MDC.put(REQUEST_URL, request.getURI().toString());
-  }
-
-  private void putRequestHeaders (ServerHttpRequest request) {
-    HttpHeaders headers = request.getHeaders();
-    headers.entrySet().stream().forEach(entry -> {
-      try {
-        MDC.put(REQUEST_HEADERS + "." + entry.getKey(), mapper.writeValueAsString(entry.getValue()));
-      } catch (JsonProcessingException e) {
-        log.warn("cannot log headers", e);
+    try {
+      LoggingFulfillmentOptionsRequestParameter parameters = readRequestParameters(dataBuffer);
+      diagnostics.siteId(parameters.getSiteId())
+          .channel(parameters.getChannel())
+          .basketReferenceId(parameters.getBasketReferenceId());
+      if (isLogBody) {
+        // copied because the cached body is released with the exchange, only decoded if the request is logged
+        BoundedBodyCapture body = new BoundedBodyCapture(dataBuffer.readableByteCount());
+        body.capture(dataBuffer);
+        diagnostics.body(body);
       }
-    });
-
+    } catch (IOException e) {
+      log.warn("Cannot log body ", e);
+    }
   }
 
-  private void putResponseHeaders (ServerHttpResponse response) {
-    HttpHeaders headers = response.getHeaders();
-    headers.entrySet().stream().forEach(entry -> {
-      try {
-        MDC.put(RESPONSE_HEADERS + "." + entry.getKey(), mapper.writeValueAsString(entry.getValue()));
-      } catch (JsonProcessingException e) {
-        log.warn("cannot log headers", e);
+  /**
+   * Streams the top level fields of the body until siteId, channel and basketReferenceId are found, without binding
+   * the rest of the request. Reads through a view of the buffer, so the cached body stays readable for the handler.
+   */
+  private LoggingFulfillmentOptionsRequestParameter readRequestParameters(DataBuffer dataBuffer) throws IOException {
+    LoggingFulfillmentOptionsRequestParameter parameters = new LoggingFulfillmentOptionsRequestParameter();
+    try (JsonParser parser = mapper.getFactory()
+        .createParser(new ByteBufferBackedInputStream(dataBuffer.asByteBuffer()))) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return parameters;
       }
-    });
+      int found = 0;
+      while (found < 3 && parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if (!value.isScalarValue()) {
+          parser.skipChildren();
+          continue;
+        }
+        switch (field) {
+          case "siteId" -> parameters.setSiteId(parser.getValueAsString());
+          case "channel" -> parameters.setChannel(parser.getValueAsString());
+          case "basketReferenceId" -> parameters.setBasketReferenceId(parser.getValueAsString());
+          default -> {
+            continue;
+          }
+        }
+        found++;
+      }
+    }
+    return parameters;
   }
-
 }
@@ -0,0 +1,47 @@
+package com.domainname.next.shippingapi.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.codec.ServerSentEvent;
+
+import com.domainname.next.shippingapi.resources.response.OptionsStreamCompletion;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Frames a stream of options for the streaming variants of the options endpoints, closing it with an
+ * {@link OptionsStreamCompletion}. A stream that ends without the completion event was cut short.
+ */
+final class OptionsStream {
+
+  static final String OPTION_EVENT = "option";
+  static final String COMPLETE_EVENT = "complete";
+
+  private OptionsStream() {
+  }
+
+  static <T> Flux<ServerSentEvent<Object>> serverSentEvents(Flux<T> options) {
+    return withCompletion(options)
+        .map(item -> ServerSentEvent.builder(item)
+            .event(item instanceof OptionsStreamCompletion ? COMPLETE_EVENT : OPTION_EVENT)
+            .build());
+  }
+
+  static <T> Flux<Object> ndjson(Flux<T> options) {
+    return withCompletion(options);
+  }
+
+  private static <T> Flux<Object> withCompletion(Flux<T> options) {
+    return Flux.defer(() -> {
+      AtomicLong count = new AtomicLong();
+      return options
+          .doOnNext(option -> count.incrementAndGet())
+          .cast(Object.class)
+          .concatWith(Mono.fromSupplier(() -> OptionsStreamCompletion.builder()
+              .complete(true)
+              .count(count.get())
+              .build()));
+    });
+  }
+}
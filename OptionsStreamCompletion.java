@@ -0,0 +1,17 @@
+package com.domainname.next.shippingapi.resources.response;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Last event of an options stream: tells the client that every fulfillment type has answered and how many options
+ * were sent, so that a stream cut short can be told apart from a complete one.
+ */
+@Builder
+@Getter
+public class OptionsStreamCompletion {
+
+  private final boolean complete;
+  private final long count;
+
+}
@@ -0,0 +1,187 @@
+package com.domainname.next.shippingapi.client.configuration;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.domainname.next.shippingapi.filter.RequestDiagnostics;
+import com.domainname.next.shippingapi.filter.RequestEvent;
+import com.domainname.next.shippingapi.service.SiteConfigurationCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * Times every outbound attempt with a monotonic clock, from subscription until the response headers arrive or the
+ * attempt fails, into {@code client_outbound_requests} tagged by downstream, site, status class and outcome.
+ *
+ * The downstream is resolved from the configured {@code host} and {@code uri} of the known client property prefixes,
+ * anything else is tagged {@code other}. The site tag is only the site id of the request when it is a site
+ * {@link SiteConfigurationCache} has loaded, anything a caller made up is tagged {@code unknown}. Beyond
+ * {@code MAX_SITE_TAGS} known sites the rest are tagged {@code other}.
+ */
+@Component
+public class OutboundRequestMetrics {
+
+  private static final String METRIC = "client_outbound_requests";
+  private static final int MAX_SITE_TAGS = 100;
+  private static final String OTHER = "other";
+  private static final Duration[] SLO_BUCKETS = List.of(50L, 100L, 250L, 500L, 1000L, 2000L, 3000L, 5000L, 10000L)
+      .stream().map(Duration::ofMillis).toArray(Duration[]::new);
+
+  // client property prefix to downstream tag, endpoints sharing a host are told apart by the longest matching uri
+  private static final Map<String, String> DOWNSTREAMS = new LinkedHashMap<>();
+
+  static {
+    DOWNSTREAMS.put("deliverypromise", "dpe");
+    DOWNSTREAMS.put("deliverypromise-ms", "dpe-ms");
+    DOWNSTREAMS.put("dpe-failover", "dpe-failover");
+    DOWNSTREAMS.put("cnc-ms", "cnc-ms");
+    DOWNSTREAMS.put("cnc-dpe", "cnc-dpe");
+    DOWNSTREAMS.put("ssm-store", "ssm-store");
+    DOWNSTREAMS.put("pudo-id-aggregator", "pudo-aggregator");
+    DOWNSTREAMS.put("pudo-aggregator-store", "pudo-aggregator");
+    DOWNSTREAMS.put("pudo-aggregator", "pudo-aggregator");
+    DOWNSTREAMS.put("geocode", "geocode");
+  }
+
+  private static final String UNKNOWN = "unknown";
+
+  private final MeterRegistry meterRegistry;
+  // looked up lazily, the site configuration depends on the web clients this class instruments
+  private final ObjectProvider<SiteConfigurationCache> siteConfigurationCache;
+  private final List<Endpoint> endpoints;
+  private final Set<String> siteTags = ConcurrentHashMap.newKeySet();
+
+  public OutboundRequestMetrics(Environment environment, MeterRegistry meterRegistry,
+      ObjectProvider<SiteConfigurationCache> siteConfigurationCache) {
+    this.meterRegistry = meterRegistry;
+    this.siteConfigurationCache = siteConfigurationCache;
+    this.endpoints = DOWNSTREAMS.entrySet().stream()
+        .map(entry -> Endpoint.of(environment, entry.getKey(), entry.getValue()))
+        .flatMap(Optional::stream)
+        .sorted((first, second) -> Integer.compare(second.path.length(), first.path.length()))
+        .collect(Collectors.toList());
+  }
+
+  public ExchangeFilterFunction filter() {
+    return (request, next) -> Mono.deferContextual(context -> {
+      String downstream = downstream(request.url());
+      String site = site(context);
+      long start = System.nanoTime();
+      AtomicBoolean recorded = new AtomicBoolean();
+      Mono<ClientResponse> exchange = next.exchange(request)
+          .doOnNext(response -> {
+            if (recorded.compareAndSet(false, true)) {
+              int status = response.rawStatusCode();
+              record(downstream, site, status / 100 + "xx", status >= 500 ? "server_error"
+                  : status >= 400 ? "client_error" : "success", start);
+            }
+          })
+          .doOnError(throwable -> {
+            if (recorded.compareAndSet(false, true)) {
+              record(downstream, site, "none", errorOutcome(throwable), start);
+            }
+          })
+          .doOnCancel(() -> {
+            if (recorded.compareAndSet(false, true)) {
+              record(downstream, site, "none", "cancelled", start);
+            }
+          });
+      return RequestEvent.timed(RequestEvent.STAGE_DOWNSTREAM_PREFIX + downstream, exchange);
+    });
+  }
+
+  String downstream(URI url) {
+    String path = Optional.ofNullable(url.getPath()).orElse("");
+    return endpoints.stream()
+        .filter(endpoint -> endpoint.host.equalsIgnoreCase(url.getHost()) && path.startsWith(endpoint.path))
+        .map(endpoint -> endpoint.downstream)
+        .findFirst()
+        .orElse(OTHER);
+  }
+
+  private String site(ContextView context) {
+    Optional<String> site = RequestDiagnostics.from(context)
+        .map(RequestDiagnostics::getSiteId)
+        .filter(this::isKnownSite);
+    if (site.isEmpty()) {
+      return UNKNOWN;
+    }
+    if (siteTags.contains(site.get()) || (siteTags.size() < MAX_SITE_TAGS && siteTags.add(site.get()))) {
+      return site.get();
+    }
+    return OTHER;
+  }
+
+  private boolean isKnownSite(String siteId) {
+    SiteConfigurationCache cache = siteConfigurationCache.getIfAvailable();
+    return cache != null && cache.isKnownSite(siteId);
+  }
+
+  private void record(String downstream, String site, String status, String outcome, long start) {
+    Timer.builder(METRIC)
+        .tags("downstream", downstream, "site", site, "status", status, "outcome", outcome)
+        .serviceLevelObjectives(SLO_BUCKETS)
+        .register(meterRegistry)
+        .record(Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private static String errorOutcome(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null && cause.getCause() != cause; cause = cause.getCause()) {
+      if (cause instanceof TimeoutException) {
+        return "timeout";
+      }
+      if (cause instanceof ConnectException) {
+        return "connect_error";
+      }
+    }
+    return "error";
+  }
+
+  private static final class Endpoint {
+
+    private final String host;
+    private final String path;
+    private final String downstream;
+
+    private Endpoint(String host, String path, String downstream) {
+      this.host = host;
+      this.path = path;
+      this.downstream = downstream;
+    }
+
+    private static Optional<Endpoint> of(Environment environment, String prefix, String downstream) {
+      try {
+        return Optional.ofNullable(environment.getProperty(prefix + ".host"))
+            .map(host -> UriComponentsBuilder.fromHttpUrl(host).build().getHost())
+            .map(host -> {
+              String uri = Optional.ofNullable(environment.getProperty(prefix + ".uri")).orElse("");
+              // drop template variables, the literal part before them is enough to tell the endpoints apart
+              String path = "/" + uri.replaceAll("\\{.*$", "").replaceAll("^/+", "");
+              return new Endpoint(host, path, downstream);
+            });
+      } catch (IllegalArgumentException e) {
+        return Optional.empty();
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.domainname.next.shippingapi.service;
+
+import com.domainname.next.shippingapi.config.PudoSpeculationProperties;
+
+/**
+ * Token bucket bounding the speculative site id PUDO lookups that turn out to be wasted. It is refilled by
+ * {@code max-wasted-ratio} per PUDO request, a speculation takes a token when it starts and hands it back when its
+ * result is used, so wasted lookups stay a bounded fraction of the traffic.
+ */
+class PudoSpeculationBudget {
+
+  private final double maxWastedRatio;
+  private final double maxBudgetTokens;
+
+  private double budgetTokens;
+
+  PudoSpeculationBudget(PudoSpeculationProperties properties) {
+    this.maxWastedRatio = properties.getMaxWastedRatio();
+    this.maxBudgetTokens = properties.getMaxBudgetTokens();
+    this.budgetTokens = maxBudgetTokens;
+  }
+
+  synchronized void onRequest() {
+    budgetTokens = Math.min(maxBudgetTokens, budgetTokens + maxWastedRatio);
+  }
+
+  synchronized boolean tryAcquire() {
+    if (budgetTokens < 1) {
+      return false;
+    }
+    budgetTokens -= 1;
+    return true;
+  }
+
+  synchronized void release() {
+    budgetTokens = Math.min(maxBudgetTokens, budgetTokens + 1);
+  }
+}
@@ -0,0 +1,19 @@
+package com.domainname.next.shippingapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "pudo-speculation")
+public class PudoSpeculationProperties {
+
+  // starts the site id PUDO lookup alongside geocoding instead of after it
+  private boolean enabled = false;
+  // longest the speculative lookup may run, a slower one is cancelled and redone if it turns out to be needed
+  private Long budgetMillis = 3000L;
+  // at most this fraction of PUDO requests may start a lookup that is not used in the end
+  private Double maxWastedRatio = 0.2;
+  private Double maxBudgetTokens = 10.0;
+}
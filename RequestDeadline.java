@@ -0,0 +1,45 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import reactor.util.context.ContextView;
+
+/**
+ * Point in time by which the caller of the current request stops waiting for it, carried in the Reactor Context by
+ * {@link RequestDeadlineFilter}. Outbound calls bound their own timeouts by the time that is left.
+ */
+public final class RequestDeadline {
+
+  private final long deadlineNanos;
+
+  private RequestDeadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  public static RequestDeadline after(Duration timeout) {
+    return new RequestDeadline(System.nanoTime() + timeout.toNanos());
+  }
+
+  public static Optional<RequestDeadline> from(ContextView context) {
+    return context.getOrEmpty(RequestDeadline.class);
+  }
+
+  /**
+   * The smaller of {@code timeout} and the time left until the deadline of the request in {@code context}.
+   */
+  public static Duration boundTimeout(ContextView context, Duration timeout) {
+    return from(context)
+        .map(RequestDeadline::remaining)
+        .filter(remaining -> remaining.compareTo(timeout) < 0)
+        .orElse(timeout);
+  }
+
+  public Duration remaining() {
+    return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+  }
+
+  public boolean isExpired() {
+    return deadlineNanos - System.nanoTime() <= 0;
+  }
+}
@@ -0,0 +1,137 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.zalando.problem.Status;
+
+import com.domainname.next.shippingapi.resources.response.ProblemResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * Filter which puts a {@link RequestDeadline} in the Reactor Context of the request and cancels the whole chain,
+ * including in-flight outbound calls, once it expires.
+ *
+ * The deadline is taken from the configured header when present (capped by {@code max-timeout-millis}), otherwise
+ * from the most specific matching {@code endpoint-timeout-millis} pattern or {@code default-timeout-millis}.
+ *
+ * An expired request is answered with a 504 problem response. Streamed responses (server sent events, NDJSON) are
+ * never cut at the deadline, their outbound calls are still bounded by it. Runs inside {@link LoggingFilter} so the
+ * 504 is logged like any other response.
+ */
+@Component
+@Slf4j
+public class RequestDeadlineFilter implements WebFilter, Ordered {
+
+  private static final String ACTUATOR_PATH = "/actuator";
+
+  private static final List<MediaType> STREAMING_MEDIA_TYPES =
+      List.of(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_NDJSON);
+
+  private final RequestDeadlineProperties properties;
+  private final ObjectMapper objectMapper;
+  // parsed once, most specific pattern first
+  private final List<Map.Entry<PathPattern, Duration>> endpointTimeouts;
+
+  public RequestDeadlineFilter(RequestDeadlineProperties properties, ObjectMapper objectMapper) {
+    this.properties = properties;
+    this.objectMapper = objectMapper;
+    this.endpointTimeouts = properties.getEndpointTimeoutMillis().entrySet().stream()
+        .map(entry -> Map.entry(PathPatternParser.defaultInstance.parse(entry.getKey()),
+            Duration.ofMillis(entry.getValue())))
+        .sorted(Map.Entry.comparingByKey(PathPattern.SPECIFICITY_COMPARATOR))
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    String path = exchange.getRequest().getPath().pathWithinApplication().value();
+    if (!properties.isEnabled() || path.startsWith(ACTUATOR_PATH)) {
+      return chain.filter(exchange);
+    }
+    Duration timeout = timeout(exchange);
+    RequestDeadline deadline = RequestDeadline.after(timeout);
+    Mono<Void> filtered = chain.filter(exchange);
+    if (!isStreaming(exchange.getRequest())) {
+      filtered = filtered.timeout(timeout,
+          Mono.deferContextual(context -> deadlineExceeded(exchange, timeout, path, context)));
+    }
+    return filtered.contextWrite(context -> context.put(RequestDeadline.class, deadline));
+  }
+
+  private Mono<Void> deadlineExceeded(ServerWebExchange exchange, Duration timeout, String path,
+      ContextView context) {
+    String detail = "Request deadline of " + timeout.toMillis() + " millis exceeded";
+    log.warn(RequestDiagnostics.correlationMarker(context), "{} for {}", detail, path);
+    ServerHttpResponse response = exchange.getResponse();
+    if (response.isCommitted()) {
+      // part of the body is already on the wire, failing the exchange aborts it instead of ending it cleanly
+      return Mono.error(new TimeoutException(detail + " for " + path));
+    }
+    Object problem = ProblemResponse.problemResponseEntity(exchange, Status.GATEWAY_TIMEOUT, detail).getBody();
+    response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+    response.getHeaders().setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+    return response.writeWith(Mono.fromCallable(() ->
+        response.bufferFactory().wrap(objectMapper.writeValueAsBytes(problem))));
+  }
+
+  private static boolean isStreaming(ServerHttpRequest request) {
+    try {
+      return request.getHeaders().getAccept().stream()
+          .anyMatch(accepted -> STREAMING_MEDIA_TYPES.stream().anyMatch(accepted::equalsTypeAndSubtype));
+    } catch (InvalidMediaTypeException e) {
+      return false;
+    }
+  }
+
+  private Duration timeout(ServerWebExchange exchange) {
+    long maxTimeoutMillis = properties.getMaxTimeoutMillis();
+    Optional<Long> requested = Optional.ofNullable(exchange.getRequest().getHeaders().getFirst(properties.getHeader()))
+        .flatMap(RequestDeadlineFilter::parseMillis)
+        .filter(millis -> millis > 0);
+    if (requested.isPresent()) {
+      return Duration.ofMillis(Math.min(requested.get(), maxTimeoutMillis));
+    }
+    PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+    return endpointTimeouts.stream()
+        .filter(entry -> entry.getKey().matches(path))
+        .map(Map.Entry::getValue)
+        .findFirst()
+        .orElse(Duration.ofMillis(properties.getDefaultTimeoutMillis()));
+  }
+
+  private static Optional<Long> parseMillis(String value) {
+    try {
+      return Optional.of(Long.parseLong(value.trim()));
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public int getOrder() {
+    // after LoggingFilter, so the request log sees the 504
+    return Ordered.HIGHEST_PRECEDENCE + 2;
+  }
+}
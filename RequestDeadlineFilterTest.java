@@ -0,0 +1,87 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class RequestDeadlineFilterTest {
+
+  private final RequestDeadlineProperties properties = new RequestDeadlineProperties();
+  private final RequestDeadlineFilter filter = new RequestDeadlineFilter(properties, new ObjectMapper());
+
+  @BeforeEach
+  void setup() {
+    properties.setDefaultTimeoutMillis(50L);
+  }
+
+  @Test
+  void testExpiredRequestIsAnsweredWithProblem() {
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/shipping-options")
+        .accept(MediaType.APPLICATION_JSON));
+
+    StepVerifier.create(filter.filter(exchange, chained -> Mono.never()))
+        .verifyComplete();
+
+    Assertions.assertEquals(HttpStatus.GATEWAY_TIMEOUT, exchange.getResponse().getStatusCode());
+    Assertions.assertEquals(MediaType.APPLICATION_PROBLEM_JSON, exchange.getResponse().getHeaders().getContentType());
+    StepVerifier.create(exchange.getResponse().getBodyAsString())
+        .assertNext(body -> Assertions.assertTrue(body.contains("Request deadline of 50 millis exceeded")))
+        .verifyComplete();
+  }
+
+  @Test
+  void testMostSpecificEndpointPatternWins() {
+    RequestDeadlineProperties endpointProperties = new RequestDeadlineProperties();
+    endpointProperties.getEndpointTimeoutMillis().put("/shipping-method/**", 5000L);
+    endpointProperties.getEndpointTimeoutMillis().put("/shipping-method/{id}", 50L);
+    RequestDeadlineFilter endpointFilter = new RequestDeadlineFilter(endpointProperties, new ObjectMapper());
+    MockServerWebExchange exchange =
+        MockServerWebExchange.from(MockServerHttpRequest.get("/shipping-method/adidas-GB"));
+
+    StepVerifier.create(endpointFilter.filter(exchange, chained -> Mono.never()))
+        .verifyComplete();
+
+    Assertions.assertEquals(HttpStatus.GATEWAY_TIMEOUT, exchange.getResponse().getStatusCode());
+  }
+
+  @Test
+  void testCommittedResponseIsAborted() {
+    MockServerWebExchange exchange =
+        MockServerWebExchange.from(MockServerHttpRequest.get("/shipping-method/adidas-GB"));
+
+    StepVerifier.create(filter.filter(exchange, chained -> chained.getResponse()
+            .writeWith(Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(new byte[] {'['})))
+            .then(Mono.never())))
+        .expectError(TimeoutException.class)
+        .verify();
+  }
+
+  @Test
+  void testStreamedResponseIsNotCut() {
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/shipping-options")
+        .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON_VALUE));
+
+    StepVerifier.create(filter.filter(exchange, chained -> Mono.delay(Duration.ofMillis(200))
+            .then(Mono.deferContextual(context -> {
+              Assertions.assertTrue(RequestDeadline.from(context).map(RequestDeadline::isExpired).orElse(false));
+              return Mono.<Void>empty();
+            }))))
+        .verifyComplete();
+
+    Assertions.assertNull(exchange.getResponse().getStatusCode());
+  }
+}
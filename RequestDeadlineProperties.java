@@ -0,0 +1,22 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "request-deadline")
+public class RequestDeadlineProperties {
+
+  private boolean enabled = true;
+  // remaining time the caller is willing to wait, in millis
+  private String header = "X-Request-Timeout-Millis";
+  private Long defaultTimeoutMillis = 15000L;
+  private Long maxTimeoutMillis = 30000L;
+  // per endpoint defaults keyed by path pattern, the most specific match wins
+  private Map<String, Long> endpointTimeoutMillis = new LinkedHashMap<>();
+}
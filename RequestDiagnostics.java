@@ -0,0 +1,95 @@
+package com.domainname.next.shippingapi.filter;
+
+import static com.domainname.next.shippingapi.filter.MDCManager.REQUEST_BASKET_REFERENCE_ID;
+import static com.domainname.next.shippingapi.filter.MDCManager.REQUEST_BODY;
+import static com.domainname.next.shippingapi.filter.MDCManager.REQUEST_CHANNEL;
+import static com.domainname.next.shippingapi.filter.MDCManager.REQUEST_HEADERS;
+import static com.domainname.next.shippingapi.filter.MDCManager.REQUEST_METHOD;
+import static com.domainname.next.shippingapi.filter.MDCManager.REQUEST_SITE_ID;
+import static com.domainname.next.shippingapi.filter.MDCManager.REQUEST_URL;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.slf4j.Marker;
+import org.springframework.http.HttpHeaders;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import lombok.Builder;
+import lombok.Getter;
+import net.logstash.logback.marker.LogstashMarker;
+import net.logstash.logback.marker.Markers;
+import reactor.core.publisher.Signal;
+import reactor.util.context.ContextView;
+
+/**
+ * Immutable diagnostic fields of an inbound request, carried in the Reactor Context of the request by
+ * {@link LoggingFilter} instead of thread local MDC entries. They are written to a log event through
+ * {@link #marker()}, headers and body are only serialized when that event is encoded. Log statements inside the
+ * pipeline of the request carry the correlation fields through {@link #correlationMarker(ContextView)}, read from
+ * the context at the call site, rather than through the thread local MDC.
+ */
+@Getter
+@Builder
+public class RequestDiagnostics {
+
+  private final String method;
+  private final String url;
+  private final HttpHeaders headers;
+  private final Set<String> sanitizedHeaders;
+  private final String siteId;
+  private final String channel;
+  private final String basketReferenceId;
+  private final BoundedBodyCapture body;
+
+  public static Optional<RequestDiagnostics> from(ContextView context) {
+    return context.getOrEmpty(RequestDiagnostics.class);
+  }
+
+  /**
+   * Marker with only siteId, channel and basketReferenceId of the request whose context is given, empty outside of a
+   * request or when the request has none of them.
+   */
+  public static LogstashMarker correlationMarker(ContextView context) {
+    return from(context)
+        .filter(RequestDiagnostics::hasCorrelationFields)
+        .<LogstashMarker>map(diagnostics -> new DiagnosticsMarker(diagnostics::writeCorrelationFields))
+        .orElseGet(Markers::empty);
+  }
+
+  /**
+   * {@code doOnEach} callback running {@code logStatement} with the correlation marker of the request when the
+   * pipeline fails.
+   */
+  public static <T> Consumer<Signal<T>> logOnError(BiConsumer<Marker, Throwable> logStatement) {
+    return signal -> {
+      if (signal.isOnError()) {
+        logStatement.accept(correlationMarker(signal.getContextView()), signal.getThrowable());
+      }
+    };
+  }
+
+  boolean hasCorrelationFields() {
+    return siteId != null || channel != null || basketReferenceId != null;
+  }
+
+  public LogstashMarker marker() {
+    return new DiagnosticsMarker(generator -> {
+      DiagnosticsMarker.writeStringField(generator, REQUEST_URL, url);
+      DiagnosticsMarker.writeStringField(generator, REQUEST_METHOD, method);
+      DiagnosticsMarker.writeHeaders(generator, REQUEST_HEADERS, headers.entrySet(), sanitizedHeaders);
+      writeCorrelationFields(generator);
+      DiagnosticsMarker.writeStringField(generator, REQUEST_BODY, body == null ? null : body.toString());
+    });
+  }
+
+  private void writeCorrelationFields(JsonGenerator generator) throws IOException {
+    DiagnosticsMarker.writeStringField(generator, REQUEST_SITE_ID, siteId);
+    DiagnosticsMarker.writeStringField(generator, REQUEST_CHANNEL, channel);
+    DiagnosticsMarker.writeStringField(generator, REQUEST_BASKET_REFERENCE_ID, basketReferenceId);
+  }
+}
@@ -0,0 +1,64 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import net.logstash.logback.marker.LogstashMarker;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+class RequestDiagnosticsTest {
+
+  private final RequestDiagnostics diagnostics = RequestDiagnostics.builder()
+      .siteId("adidas-GB")
+      .channel("web")
+      .basketReferenceId("basket-1")
+      .build();
+
+  @Test
+  void testCorrelationMarkerCarriesOnlyTheCorrelationFields() throws IOException {
+    LogstashMarker marker = RequestDiagnostics.correlationMarker(Context.of(RequestDiagnostics.class, diagnostics));
+
+    Assertions.assertEquals("{\"siteId\":\"adidas-GB\",\"channel\":\"web\",\"basketReferenceId\":\"basket-1\"}",
+        json(marker));
+  }
+
+  @Test
+  void testCorrelationMarkerIsEmptyOutsideOfARequest() throws IOException {
+    Assertions.assertEquals("{}", json(RequestDiagnostics.correlationMarker(Context.empty())));
+  }
+
+  @Test
+  void testErrorIsLoggedWithTheMarkerOfItsRequestOnAnyThread() throws IOException {
+    AtomicReference<Marker> logged = new AtomicReference<>();
+
+    StepVerifier.create(Mono.error(new IllegalStateException())
+            .publishOn(Schedulers.parallel())
+            .doOnEach(RequestDiagnostics.logOnError((marker, throwable) -> logged.set(marker)))
+            .contextWrite(context -> context.put(RequestDiagnostics.class, diagnostics)))
+        .expectError(IllegalStateException.class)
+        .verify();
+
+    Assertions.assertTrue(json((LogstashMarker) logged.get()).contains("\"siteId\":\"adidas-GB\""));
+  }
+
+  private static String json(LogstashMarker marker) throws IOException {
+    StringWriter writer = new StringWriter();
+    try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+      generator.writeStartObject();
+      marker.writeTo(generator);
+      generator.writeEndObject();
+    }
+    return writer.toString();
+  }
+}
@@ -0,0 +1,97 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.logstash.logback.marker.LogstashMarker;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * The single wide event of a request: stage timings, sizes and outcome collected through the pipeline and logged
+ * once by {@link LoggingFilter} when the request completes. Carried in the Reactor Context, stages may be recorded
+ * concurrently from any thread.
+ */
+public class RequestEvent {
+
+  public static final String STAGE_SITE_CONFIGURATION = "siteConfiguration";
+  public static final String STAGE_RESPONSE_WRITE = "responseWrite";
+  public static final String STAGE_DOWNSTREAM_PREFIX = "downstream.";
+  public static final String STAGE_FULFILLMENT_PREFIX = "fulfillment.";
+
+  private static final String STAGES = "event.stages.";
+
+  private final long startNanos = System.nanoTime();
+  private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+  private final AtomicLong requestBytes = new AtomicLong();
+  private final AtomicLong responseBytes = new AtomicLong();
+
+  public static Optional<RequestEvent> from(ContextView context) {
+    return context.getOrEmpty(RequestEvent.class);
+  }
+
+  /**
+   * Records the time from subscription until {@code mono} terminates or is cancelled as {@code stage} of the request
+   * event in the subscriber context, if any.
+   */
+  public static <T> Mono<T> timed(String stage, Mono<T> mono) {
+    return Mono.deferContextual(context -> from(context)
+        .map(event -> {
+          long start = System.nanoTime();
+          return mono.doFinally(signal -> event.recordStage(stage, System.nanoTime() - start));
+        })
+        .orElse(mono));
+  }
+
+  public static <T> Flux<T> timed(String stage, Flux<T> flux) {
+    return Flux.deferContextual(context -> from(context)
+        .map(event -> {
+          long start = System.nanoTime();
+          return flux.doFinally(signal -> event.recordStage(stage, System.nanoTime() - start));
+        })
+        .orElse(flux));
+  }
+
+  public void recordStage(String stage, long nanos) {
+    Stage timing = stages.computeIfAbsent(stage, ignored -> new Stage());
+    timing.nanos.add(nanos);
+    timing.count.increment();
+  }
+
+  public void addRequestBytes(long bytes) {
+    requestBytes.addAndGet(bytes);
+  }
+
+  public void addResponseBytes(long bytes) {
+    responseBytes.addAndGet(bytes);
+  }
+
+  /**
+   * Fields of the event, written when the log event carrying the marker is encoded.
+   */
+  public LogstashMarker marker(String outcome) {
+    long durationNanos = System.nanoTime() - startNanos;
+    return new DiagnosticsMarker(generator -> {
+      generator.writeStringField("event.outcome", outcome);
+      generator.writeNumberField("event.durationMs", TimeUnit.NANOSECONDS.toMillis(durationNanos));
+      generator.writeNumberField("event.requestBytes", requestBytes.get());
+      generator.writeNumberField("event.responseBytes", responseBytes.get());
+      for (Map.Entry<String, Stage> stage : stages.entrySet()) {
+        generator.writeNumberField(STAGES + stage.getKey() + ".ms",
+            TimeUnit.NANOSECONDS.toMillis(stage.getValue().nanos.sum()));
+        generator.writeNumberField(STAGES + stage.getKey() + ".count", stage.getValue().count.sum());
+      }
+    });
+  }
+
+  private static final class Stage {
+
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder count = new LongAdder();
+  }
+}
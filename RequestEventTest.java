@@ -0,0 +1,57 @@
+package com.domainname.next.shippingapi.filter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class RequestEventTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void testStagesAndSizesAreWrittenOnTheEvent() throws IOException {
+    RequestEvent event = new RequestEvent();
+
+    StepVerifier.create(RequestEvent.timed(RequestEvent.STAGE_SITE_CONFIGURATION, Mono.just("site"))
+            .then(RequestEvent.timed(RequestEvent.STAGE_SITE_CONFIGURATION, Mono.empty()))
+            .contextWrite(context -> context.put(RequestEvent.class, event)))
+        .verifyComplete();
+    event.addRequestBytes(10);
+    event.addResponseBytes(20);
+    event.addResponseBytes(5);
+
+    JsonNode fields = write(event);
+    Assertions.assertEquals("SUCCESS", fields.get("event.outcome").asText());
+    Assertions.assertEquals(10, fields.get("event.requestBytes").asLong());
+    Assertions.assertEquals(25, fields.get("event.responseBytes").asLong());
+    Assertions.assertEquals(2, fields.get("event.stages.siteConfiguration.count").asLong());
+    Assertions.assertTrue(fields.has("event.stages.siteConfiguration.ms"));
+  }
+
+  @Test
+  void testTimedWithoutEventInContextIsPassThrough() {
+    StepVerifier.create(RequestEvent.timed(RequestEvent.STAGE_SITE_CONFIGURATION, Mono.just("site")))
+        .expectNext("site")
+        .verifyComplete();
+  }
+
+  private JsonNode write(RequestEvent event) throws IOException {
+    StringWriter json = new StringWriter();
+    try (JsonGenerator generator = new JsonFactory().createGenerator(json)) {
+      generator.writeStartObject();
+      event.marker("SUCCESS").writeTo(generator);
+      generator.writeEndObject();
+    }
+    return objectMapper.readTree(json.toString());
+  }
+}
@@ -0,0 +1,43 @@
+package com.domainname.next.shippingapi.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Canonical fingerprint of an outbound request body: SHA-256 of its JSON with properties and map entries sorted, so
+ * that equal requests get the same key whatever order they were built in. Empty when the request cannot be
+ * serialized, callers then run the request without sharing it.
+ */
+@Component
+@Slf4j
+public class RequestFingerprint {
+
+  private final ObjectMapper fingerprintMapper;
+
+  public RequestFingerprint(ObjectMapper objectMapper) {
+    this.fingerprintMapper = objectMapper.copy()
+        .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+  }
+
+  public Optional<String> of(Object request) {
+    try {
+      byte[] json = fingerprintMapper.writeValueAsBytes(request);
+      return Optional.of(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json)));
+    } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+      log.warn("Unable to fingerprint {}, not sharing it : {}", request.getClass().getSimpleName(), e.getMessage());
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.domainname.next.shippingapi.client.configuration;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import com.domainname.next.shippingapi.client.configuration.ClientProperties.RetryPolicyProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Retry policy of one downstream, named by its {@link OutboundRequestMetrics} tag and configured by the policy of that
+ * name or else the {@code default} one: which failures are retried, the full-jitter exponential backoff between
+ * attempts and a token bucket that is refilled by {@code budgetRatio} per live request and drained by one per retry,
+ * so that retries stay a bounded fraction of the traffic during a downstream brownout.
+ */
+class RetryPolicy {
+
+  private static final String RETRY_METRIC = "client_retries";
+  private static final String OUTCOME_METRIC = "client_request_outcome";
+  private static final String DEFAULT_POLICY = "default";
+  private static final Set<HttpMethod> IDEMPOTENT_METHODS =
+      Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE);
+
+  private final String downstream;
+  private final int maxRetries;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+  private final double budgetRatio;
+  private final double budgetMaxTokens;
+  private final boolean retryNonIdempotent;
+  private final MeterRegistry meterRegistry;
+
+  private double budgetTokens;
+
+  RetryPolicy(String downstream, ClientProperties properties, MeterRegistry meterRegistry) {
+    Map<String, RetryPolicyProperties> policies = properties.getRetryPolicies();
+    RetryPolicyProperties policy = Optional.ofNullable(policies.get(downstream))
+        .or(() -> Optional.ofNullable(policies.get(DEFAULT_POLICY)))
+        .orElseGet(RetryPolicyProperties::new);
+    this.downstream = downstream;
+    this.maxRetries = Optional.ofNullable(policy.getMaxRetries()).orElse(properties.getRetries());
+    this.baseDelayMillis = Optional.ofNullable(policy.getBaseDelayMillis())
+        .orElse(properties.getRetryDelayMilis().longValue());
+    this.maxDelayMillis = policy.getMaxDelayMillis();
+    this.budgetRatio = policy.getBudgetRatio();
+    this.budgetMaxTokens = policy.getBudgetMaxTokens();
+    this.retryNonIdempotent = policy.isRetryNonIdempotent();
+    this.meterRegistry = meterRegistry;
+    this.budgetTokens = budgetMaxTokens;
+  }
+
+  synchronized void onRequest() {
+    budgetTokens = Math.min(budgetMaxTokens, budgetTokens + budgetRatio);
+  }
+
+  boolean isRetryable(HttpMethod method, Throwable throwable) {
+    if (isCausedBy(throwable, ConnectException.class)) {
+      // the request never reached the downstream
+      return true;
+    }
+    return isIdempotent(method)
+        && (isCausedBy(throwable, TimeoutException.class) || isCausedBy(throwable, SocketTimeoutException.class));
+  }
+
+  boolean isRetryable(HttpMethod method, HttpStatus status) {
+    return isIdempotent(method) && (status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS);
+  }
+
+  /**
+   * Whether attempt {@code attempt} (0 being the first) may be followed by a retry, takes a budget token if so.
+   */
+  boolean tryRetry(int attempt) {
+    if (attempt >= maxRetries) {
+      return false;
+    }
+    boolean allowed;
+    synchronized (this) {
+      allowed = budgetTokens >= 1;
+      if (allowed) {
+        budgetTokens -= 1;
+      }
+    }
+    meterRegistry.counter(RETRY_METRIC, "downstream", downstream, "result", allowed ? "attempted" : "denied")
+        .increment();
+    return allowed;
+  }
+
+  Duration backoff(int attempt) {
+    long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+  }
+
+  void recordOutcome(String outcome, int attempt) {
+    meterRegistry.counter(OUTCOME_METRIC, "downstream", downstream, "outcome", outcome,
+        "retried", String.valueOf(attempt > 0)).increment();
+  }
+
+  private boolean isIdempotent(HttpMethod method) {
+    return retryNonIdempotent || IDEMPOTENT_METHODS.contains(method);
+  }
+
+  private static boolean isCausedBy(Throwable throwable, Class<? extends Throwable> type) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (type.isInstance(cause)) {
+        return true;
+      }
+      if (cause.getCause() == cause) {
+        break;
+      }
+    }
+    return false;
+  }
+}
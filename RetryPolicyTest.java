@@ -0,0 +1,96 @@
+package com.domainname.next.shippingapi.client.configuration;
+
+import java.net.ConnectException;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import com.domainname.next.shippingapi.client.configuration.ClientProperties.RetryPolicyProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RetryPolicyTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ClientProperties properties = new ClientProperties();
+
+  @BeforeEach
+  void setup() {
+    properties.setRetries(3);
+    properties.setRetryDelayMilis(400);
+  }
+
+  @Test
+  void testOnlyTransientFailuresOfIdempotentRequestsAreRetried() {
+    RetryPolicy retryPolicy = new RetryPolicy("default", properties, meterRegistry);
+
+    Assertions.assertTrue(retryPolicy.isRetryable(HttpMethod.GET, HttpStatus.SERVICE_UNAVAILABLE));
+    Assertions.assertTrue(retryPolicy.isRetryable(HttpMethod.GET, HttpStatus.TOO_MANY_REQUESTS));
+    Assertions.assertFalse(retryPolicy.isRetryable(HttpMethod.GET, HttpStatus.BAD_REQUEST));
+    Assertions.assertFalse(retryPolicy.isRetryable(HttpMethod.POST, HttpStatus.SERVICE_UNAVAILABLE));
+    Assertions.assertTrue(retryPolicy.isRetryable(HttpMethod.GET, new TimeoutException()));
+    Assertions.assertFalse(retryPolicy.isRetryable(HttpMethod.POST, new TimeoutException()));
+    Assertions.assertTrue(retryPolicy.isRetryable(HttpMethod.POST,
+        new WebClientRequestException(new ConnectException(), HttpMethod.POST, null,
+            new HttpHeaders())));
+  }
+
+  @Test
+  void testNonIdempotentRequestsAreRetriedWhenEnabled() {
+    RetryPolicyProperties policy = new RetryPolicyProperties();
+    policy.setRetryNonIdempotent(true);
+    properties.setRetryPolicies(Map.of("dpe", policy));
+    RetryPolicy retryPolicy = new RetryPolicy("dpe", properties, meterRegistry);
+
+    Assertions.assertTrue(retryPolicy.isRetryable(HttpMethod.POST, HttpStatus.BAD_GATEWAY));
+  }
+
+  @Test
+  void testRetriesAreLimitedByAttemptsAndBudget() {
+    RetryPolicyProperties policy = new RetryPolicyProperties();
+    policy.setBudgetMaxTokens(2.0);
+    policy.setBudgetRatio(0.5);
+    properties.setRetryPolicies(Map.of("default", policy));
+    RetryPolicy retryPolicy = new RetryPolicy("default", properties, meterRegistry);
+
+    Assertions.assertFalse(retryPolicy.tryRetry(3));
+    Assertions.assertTrue(retryPolicy.tryRetry(0));
+    Assertions.assertTrue(retryPolicy.tryRetry(1));
+    Assertions.assertFalse(retryPolicy.tryRetry(2));
+    retryPolicy.onRequest();
+    retryPolicy.onRequest();
+    Assertions.assertTrue(retryPolicy.tryRetry(0));
+    Assertions.assertEquals(1.0, meterRegistry.counter("client_retries", "downstream", "default", "result", "denied")
+        .count());
+  }
+
+  @Test
+  void testDownstreamWithoutPolicyUsesDefaultPolicy() {
+    RetryPolicyProperties policy = new RetryPolicyProperties();
+    policy.setMaxRetries(0);
+    properties.setRetryPolicies(Map.of("default", policy));
+    RetryPolicy retryPolicy = new RetryPolicy("geocode", properties, meterRegistry);
+
+    Assertions.assertFalse(retryPolicy.tryRetry(0));
+    retryPolicy.recordOutcome("success", 0);
+    Assertions.assertEquals(1.0, meterRegistry.counter("client_request_outcome", "downstream", "geocode",
+        "outcome", "success", "retried", "false").count());
+  }
+
+  @Test
+  void testBackoffIsCappedAtMaxDelay() {
+    RetryPolicy retryPolicy = new RetryPolicy("default", properties, meterRegistry);
+
+    for (int attempt = 0; attempt < 30; attempt++) {
+      long backoff = retryPolicy.backoff(attempt).toMillis();
+      Assertions.assertTrue(backoff >= 0 && backoff <= 5000);
+    }
+  }
+}
@@ -28,13 +28,17 @@ import com.domainname.next.shippingapi.constant.PatternConstants;
 import com.domainname.next.shippingapi.enums.SiteID;
 import com.domainname.next.shippingapi.resources.request.ShippingMethodPostRequest;
 import com.domainname.next.shippingapi.resources.request.ShippingPatchRequest;
+import com.domainname.next.shippingapi.resources.response.BulkImportResult;
 import com.domainname.next.shippingapi.resources.response.ShippingMethodsResponse;
 
 import com.domainname.next.shippingapi.resources.response.rule.ShippingMethodsRuleResponse;
+import com.domainname.next.shippingapi.service.BulkImportService;
 import com.domainname.next.shippingapi.service.ShippingCarrierStringService;
 import com.domainname.next.shippingapi.service.ShippingService;
+import com.domainname.next.shippingapi.service.ShippingServiceBaseHandler;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -45,11 +49,16 @@ public class ShippingController {
 
   private final ShippingService shippingService;
   private final ShippingCarrierStringService shippingCarrierStringService;
+  private final BulkImportService bulkImportService;
+  private final ShippingServiceBaseHandler shippingServiceBaseHandler;
   
 
-  public ShippingController(ShippingService shippingService, ShippingCarrierStringService shippingCarrierStringService) {
+  public ShippingController(ShippingService shippingService, ShippingCarrierStringService shippingCarrierStringService,
+      BulkImportService bulkImportService, ShippingServiceBaseHandler shippingServiceBaseHandler) {
     this.shippingService = shippingService;
     this.shippingCarrierStringService = shippingCarrierStringService;
+    this.bulkImportService = bulkImportService;
+    this.shippingServiceBaseHandler = shippingServiceBaseHandler;
   }
 
   @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
@@ -63,6 +72,15 @@ public class ShippingController {
         .doOnError(throwable -> log.error("Error in saving shipping methods : {} : {}", siteId, throwable.getMessage()));
   }
   
+  @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<BulkImportResult> importShippingMethods(@RequestBody Flux<ShippingMethodPostRequest> shippingRequests) {
+    return bulkImportService.importShippingMethods(shippingRequests)
+        .doFirst(() -> log.info("Request received to import shipping methods"))
+        .doOnComplete(() -> log.info("Shipping methods import processed"))
+        .doOnError(throwable -> log.error("Error in importing shipping methods : {}", throwable.getMessage()));
+  }
+
   @GetMapping(value = "/{siteId}", produces = MediaType.APPLICATION_JSON_VALUE)
   public Mono<ResponseEntity<List<ShippingMethodsRuleResponse>>> getShippingMethods(
       @PathVariable @NotBlank(message = REQUIRED_FIELD_CODE) @EnumPattern(targetClassType = SiteID.class, message = INVALID_FIELD_CODE) String siteId) {
@@ -74,6 +92,16 @@ public class ShippingController {
             throwable.getMessage()));
   }
   
+  @GetMapping(value = "/{siteId}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<ShippingMethodsRuleResponse> streamShippingMethods(
+      @PathVariable @NotBlank(message = REQUIRED_FIELD_CODE) @EnumPattern(targetClassType = SiteID.class, message = INVALID_FIELD_CODE) String siteId) {
+    return shippingServiceBaseHandler.streamShippingMethods(siteId)
+        .doFirst(() -> log.info("Request received to stream shipping methods for siteId : {}", siteId))
+        .doOnComplete(() -> log.info("Streamed shipping methods for siteId successfully : {}", siteId))
+        .doOnError(throwable -> log.error("Error occurred while streaming shipping methods for siteId {} : {}", siteId,
+            throwable.getMessage()));
+  }
+
   @PatchMapping(value = "/{shippingMethodId}", produces = MediaType.APPLICATION_JSON_VALUE)
   public Mono<ResponseEntity<ShippingMethodsResponse>> updateShippingMethod(
       @PathVariable @NotBlank(message = REQUIRED_FIELD_CODE) @Pattern(regexp = PatternConstants.UUID_PATTERN, message = INVALID_FIELD_CODE) String shippingMethodId,
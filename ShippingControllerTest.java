@@ -30,8 +30,10 @@ import com.domainname.next.shippingapi.exception.NotFoundException;
 import com.domainname.next.shippingapi.resources.request.ShippingMethodPostRequest;
 import com.domainname.next.shippingapi.resources.request.ShippingPatchRequest;
 import com.domainname.next.shippingapi.resources.response.CarrierStringRecord;
+import com.domainname.next.shippingapi.service.BulkImportService;
 import com.domainname.next.shippingapi.service.ShippingCarrierStringService;
 import com.domainname.next.shippingapi.service.ShippingService;
+import com.domainname.next.shippingapi.service.ShippingServiceBaseHandler;
 import com.domainname.next.shippingapi.util.JsonObjectMapper;
 import com.domainname.next.shippingapi.util.MessageHelper;
 
@@ -56,6 +58,12 @@ class ShippingControllerTest extends TestHelper {
   
   @MockBean
   ShippingCarrierStringService shippingCarrierStringService;
+
+  @MockBean
+  BulkImportService bulkImportService;
+
+  @MockBean
+  ShippingServiceBaseHandler shippingServiceBaseHandler;
   
 
   @MockBean
@@ -0,0 +1,14 @@
+package com.domainname.next.shippingapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "shipping-method-export")
+public class ShippingMethodExportProperties {
+
+  // shipping methods enriched with one rules and one carrier strings query
+  private Integer chunkSize = 200;
+}
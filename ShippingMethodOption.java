@@ -0,0 +1,36 @@
+package com.domainname.next.shippingapi.resources.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+import io.r2dbc.postgresql.codec.Json;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Read-only view of a shipping method: one instance per shipping method, with its channels, product types and
+ * carrier strings already collapsed into lists.
+ */
+@Builder
+@Getter
+public class ShippingMethodOption {
+
+  private final Integer id;
+  private final UUID shippingMethodId;
+  private final String carrierName;
+  private final String carrierService;
+  private final String customId;
+  private final Boolean defaultShippingMethod;
+  private final Json description;
+  private final List<String> fulfillmentTypes;
+  private final Integer maxDaysToDeliver;
+  private final Integer minDaysToDeliver;
+  private final Json name;
+  private final Json prices;
+  private final String taxClassId;
+  private final List<String> channels;
+  private final List<String> productTypes;
+  private final List<String> carrierStrings;
+
+}
@@ -0,0 +1,360 @@
+package com.domainname.next.shippingapi.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.CollectionUtils;
+
+import com.domainname.next.shippingapi.entity.Channel;
+import com.domainname.next.shippingapi.entity.ProductType;
+import com.domainname.next.shippingapi.entity.ShippingMethodCarrierString;
+import com.domainname.next.shippingapi.entity.ShippingMethods;
+import com.domainname.next.shippingapi.resources.dto.ShippingMethodOption;
+import com.domainname.next.shippingapi.resources.dto.ShippingMethodWithMappings;
+
+import io.r2dbc.postgresql.codec.Json;
+import io.r2dbc.spi.Connection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Builds the optional-filter shipping method queries of {@link ShippingMethodRepository} with only the predicates
+ * that are actually requested.
+ *
+ * The {@code @Query} variants make filters optional with {@code or :param is null} and
+ * {@code or length(concat(:param)) = 0} on the join conditions, which keeps Postgres from using the mapping
+ * indexes and turns an absent filter into a cross join. Here an absent filter simply emits no predicate and
+ * channels are compared with their stored names.
+ */
+@Repository
+@AllArgsConstructor
+public class ShippingMethodQueryRepository {
+
+  static final String SHIPPING_METHOD_COLUMNS =
+      "select smc.id,smc.shipping_method_id,smc.carrier_name,smc.carrier_service,smc.custom_id,smc.default_shipping_method,smc.description,smc.fulfillment_types,smc.max_days_to_deliver,smc.min_days_to_deliver,smc.name,smc.prices,smc.tax_class_id,smcs.carrier_string,c.channel_name as channel_list,p.product_type_name as product_type_list";
+
+  // smc.id is the primary key, so grouping by it alone is enough to select the other smc columns
+  static final String SHIPPING_METHOD_OPTION_COLUMNS =
+      "select smc.id,smc.shipping_method_id,smc.carrier_name,smc.carrier_service,smc.custom_id,smc.default_shipping_method,smc.description,smc.fulfillment_types,smc.max_days_to_deliver,smc.min_days_to_deliver,smc.name,smc.prices,smc.tax_class_id"
+          + " ,array_agg(distinct c.channel_name) as channels"
+          + " ,array_agg(distinct p.product_type_name) as product_types"
+          + " ,array_agg(distinct smcs.carrier_string) filter (where smcs.carrier_string is not null) as carrier_strings";
+
+  private static final String SHIPPING_METHOD_BY_ID =
+      "select smc.* from site_shipping_method_configuration smc where smc.shipping_method_id = $1";
+  private static final String CHANNELS_BY_SHIPPING_METHOD_ID =
+      "select c.* from channel c"
+          + " inner join shipping_method_channel_mapping smcm on c.channel_id = smcm.channel_id"
+          + " inner join site_shipping_method_configuration smc on smc.id = smcm.shipping_method_id"
+          + " where smc.shipping_method_id = $1";
+  private static final String PRODUCT_TYPES_BY_SHIPPING_METHOD_ID =
+      "select p.* from product_type p"
+          + " inner join shipping_method_product_type_mapping smp on p.product_type_id = smp.product_type_id"
+          + " inner join site_shipping_method_configuration smc on smc.id = smp.shipping_method_id"
+          + " where smc.shipping_method_id = $1";
+  private static final String CARRIER_STRINGS_BY_SHIPPING_METHOD_ID =
+      "select smcs.* from shipping_method_carrier_string smcs"
+          + " inner join site_shipping_method_configuration smc on smc.id = smcs.shipping_method_id"
+          + " where smc.shipping_method_id = $1";
+
+  private static final Map<String, String> STORED_CHANNEL_NAMES =
+      Arrays.stream(com.domainname.next.shippingapi.enums.Channel.values())
+          .map(Object::toString)
+          .collect(Collectors.toUnmodifiableMap(ShippingMethodQueryRepository::normalize, Function.identity()));
+
+  private final R2dbcEntityTemplate r2dbcEntityTemplate;
+
+  public Mono<Boolean> existsByUniqueSiteIdParameters(Integer siteId, List<String> channels, List<String> productTypes,
+      List<String> carrierStringRecords, String carrierService) {
+    return exists(buildExistsByUniqueParams(siteId, channels, productTypes, carrierStringRecords, carrierService, null));
+  }
+
+  public Mono<Boolean> existsShippingMethodsByUniqueParamsAndShippingMethodId(Integer siteId, Set<String> channels,
+      Set<String> productTypes, Set<String> carrierStringRecords, String carrierService, Integer shippingMethodId) {
+    return exists(buildExistsByUniqueParams(siteId, channels, productTypes, carrierStringRecords, carrierService,
+        shippingMethodId));
+  }
+
+  public Flux<ShippingMethods> findShippingMethodsByUniqueParams(Integer siteId, String channel,
+      Set<String> productTypes, Set<String> carrierStringRecords, Set<String> carrierServices, String fulfillmentType) {
+    return findShippingMethods(buildFindByUniqueParams(siteId, channel, productTypes, carrierStringRecords,
+        carrierServices, fulfillmentType, null));
+  }
+
+  public Flux<ShippingMethods> findShippingByUniqueParamsWithAvailabilityStatus(Integer siteId, String channel,
+      Set<String> productTypes, Set<String> carrierStringRecords, Set<String> carrierServices, String fulfillmentType,
+      String[] availabilityStatus) {
+    return findShippingMethods(buildFindByUniqueParams(siteId, channel, productTypes, carrierStringRecords,
+        carrierServices, fulfillmentType, availabilityStatus == null ? new String[]{} : availabilityStatus));
+  }
+
+  /**
+   * Every enabled shipping method of a site as one row with all of its channels, product types and carrier strings,
+   * the values {@link #existsByUniqueSiteIdParameters} checks against.
+   */
+  public Flux<ShippingMethodOption> findShippingMethodOptionsBySiteId(Integer siteId) {
+    return findShippingMethodOptions(new BoundQuery()
+        .append(SHIPPING_METHOD_OPTION_COLUMNS)
+        .append(" from site_shipping_method_configuration smc")
+        .append(" left join shipping_method_channel_mapping smcm on smc.id = smcm.shipping_method_id")
+        .append(" left join channel c on c.channel_id = smcm.channel_id")
+        .append(" left join shipping_method_product_type_mapping smp on smc.id = smp.shipping_method_id")
+        .append(" left join product_type p on p.product_type_id = smp.product_type_id")
+        .append(" left join shipping_method_carrier_string smcs on smc.id = smcs.shipping_method_id")
+        .append(" where smc.site_id = :siteId and smc.enabled = true").bind("siteId", siteId)
+        .append(" group by smc.id"));
+  }
+
+  static BoundQuery buildFindByUniqueParams(Integer siteId, String channel, Collection<String> productTypes,
+      Collection<String> carrierStringRecords, Collection<String> carrierServices, String fulfillmentType,
+      String[] availabilityStatus) {
+    BoundQuery query = new BoundQuery();
+    query.append(SHIPPING_METHOD_COLUMNS);
+    if (availabilityStatus != null) {
+      query.append(" ,(select string_agg(t,',') from unnest(smc.availability_status) t(t) where t = ANY(:availabilityStatus)) as availability_status_list");
+      query.bind("availabilityStatus", nonNullValues(availabilityStatus));
+    }
+    return appendUniqueParamsJoinsAndConditions(query, siteId, channel, productTypes, carrierStringRecords,
+        carrierServices, fulfillmentType, availabilityStatus);
+  }
+
+  private static BoundQuery appendUniqueParamsJoinsAndConditions(BoundQuery query, Integer siteId, String channel,
+      Collection<String> productTypes, Collection<String> carrierStringRecords, Collection<String> carrierServices,
+      String fulfillmentType, String[] availabilityStatus) {
+    query.append(" from site_shipping_method_configuration smc");
+    query.append(" inner join shipping_method_channel_mapping smcm on smc.id = smcm.shipping_method_id");
+    query.append(" inner join channel c on c.channel_id = smcm.channel_id");
+    if (channel != null) {
+      appendChannelCondition(query.append(" and "), List.of(channel));
+    }
+    query.append(" inner join shipping_method_product_type_mapping smp on smc.id = smp.shipping_method_id");
+    query.append(" inner join product_type p on p.product_type_id = smp.product_type_id");
+    if (!CollectionUtils.isEmpty(productTypes)) {
+      query.append(" and p.product_type_name in (:productTypes)").bind("productTypes", productTypes);
+    }
+    if (CollectionUtils.isEmpty(carrierStringRecords)) {
+      query.append(" left join shipping_method_carrier_string smcs on smc.id = smcs.shipping_method_id");
+    } else {
+      query.append(" inner join shipping_method_carrier_string smcs on smc.id = smcs.shipping_method_id")
+          .append(" and smcs.carrier_string in (:carrierStringRecords)")
+          .bind("carrierStringRecords", carrierStringRecords);
+    }
+    query.append(" where smc.site_id = :siteId and smc.enabled = true").bind("siteId", siteId);
+    query.append(" and :fulfillmentType = ANY(smc.fulfillment_types)").bind("fulfillmentType", fulfillmentType);
+    if (!CollectionUtils.isEmpty(carrierServices)) {
+      query.append(" and smc.carrier_service in (:carrierServices)").bind("carrierServices", carrierServices);
+    }
+    if (availabilityStatus != null) {
+      appendAvailabilityStatusCondition(query, availabilityStatus);
+    }
+    return query;
+  }
+
+  static BoundQuery buildExistsByUniqueParams(Integer siteId, Collection<String> channels,
+      Collection<String> productTypes, Collection<String> carrierStringRecords, String carrierService,
+      Integer excludedShippingMethodId) {
+    BoundQuery query = new BoundQuery();
+    query.append("select exists (select 1 from site_shipping_method_configuration smc")
+        .append(" where smc.site_id = :siteId and smc.enabled = true").bind("siteId", siteId);
+    if (carrierService != null) {
+      query.append(" and smc.carrier_service = :carrierService").bind("carrierService", carrierService);
+    }
+    if (excludedShippingMethodId != null) {
+      query.append(" and smc.id <> :shippingMethodId").bind("shippingMethodId", excludedShippingMethodId);
+    }
+    if (!CollectionUtils.isEmpty(channels)) {
+      query.append(" and exists (select 1 from shipping_method_channel_mapping smcm")
+          .append(" inner join channel c on c.channel_id = smcm.channel_id")
+          .append(" where smcm.shipping_method_id = smc.id and ");
+      appendChannelCondition(query, channels).append(")");
+    }
+    if (!CollectionUtils.isEmpty(productTypes)) {
+      query.append(" and exists (select 1 from shipping_method_product_type_mapping smp")
+          .append(" inner join product_type p on p.product_type_id = smp.product_type_id")
+          .append(" where smp.shipping_method_id = smc.id and p.product_type_name in (:productTypes))")
+          .bind("productTypes", productTypes);
+    }
+    if (!CollectionUtils.isEmpty(carrierStringRecords)) {
+      query.append(" and exists (select 1 from shipping_method_carrier_string smcs")
+          .append(" where smcs.shipping_method_id = smc.id and smcs.carrier_string in (:carrierStringRecords))")
+          .bind("carrierStringRecords", carrierStringRecords);
+    }
+    return query.append(")");
+  }
+
+  /**
+   * Channels are stored with the names of the {@link com.domainname.next.shippingapi.enums.Channel} values but
+   * requested in any case. Known names are compared as stored, so an index on channel_name can serve the lookup, only
+   * names outside the enum fall back to a lower case comparison.
+   */
+  private static BoundQuery appendChannelCondition(BoundQuery query, Collection<String> channels) {
+    List<String> storedNames = channels.stream()
+        .map(channel -> STORED_CHANNEL_NAMES.get(normalize(channel)))
+        .toList();
+    if (storedNames.contains(null)) {
+      return query.append("lower(c.channel_name) in (:channels)")
+          .bind("channels", channels.stream().map(ShippingMethodQueryRepository::normalize).toList());
+    }
+    return query.append("c.channel_name in (:channels)").bind("channels", storedNames);
+  }
+
+  private static void appendAvailabilityStatusCondition(BoundQuery query, String[] availabilityStatus) {
+    boolean withoutStatus = Arrays.stream(availabilityStatus).anyMatch(Objects::isNull);
+    boolean withStatus = nonNullValues(availabilityStatus).length > 0;
+    if (withStatus && withoutStatus) {
+      query.append(" and (smc.availability_status && :availabilityStatus::varchar[] or smc.availability_status is null)");
+    } else if (withStatus) {
+      query.append(" and smc.availability_status && :availabilityStatus::varchar[]");
+    } else if (withoutStatus) {
+      query.append(" and smc.availability_status is null");
+    } else {
+      query.append(" and false");
+    }
+  }
+
+  private Flux<ShippingMethods> findShippingMethods(BoundQuery query) {
+    return query.bindTo(r2dbcEntityTemplate.getDatabaseClient())
+        .map((row, metadata) -> r2dbcEntityTemplate.getConverter().read(ShippingMethods.class, row, metadata))
+        .all();
+  }
+
+  private Flux<ShippingMethodOption> findShippingMethodOptions(BoundQuery query) {
+    return query.bindTo(r2dbcEntityTemplate.getDatabaseClient())
+        .map(row -> ShippingMethodOption.builder()
+            .id(row.get("id", Integer.class))
+            .shippingMethodId(row.get("shipping_method_id", UUID.class))
+            .carrierName(row.get("carrier_name", String.class))
+            .carrierService(row.get("carrier_service", String.class))
+            .customId(row.get("custom_id", String.class))
+            .defaultShippingMethod(row.get("default_shipping_method", Boolean.class))
+            .description(row.get("description", Json.class))
+            .fulfillmentTypes(toList(row.get("fulfillment_types", String[].class)))
+            .maxDaysToDeliver(row.get("max_days_to_deliver", Integer.class))
+            .minDaysToDeliver(row.get("min_days_to_deliver", Integer.class))
+            .name(row.get("name", Json.class))
+            .prices(row.get("prices", Json.class))
+            .taxClassId(row.get("tax_class_id", String.class))
+            .channels(toList(row.get("channels", String[].class)))
+            .productTypes(toList(row.get("product_types", String[].class)))
+            .carrierStrings(toList(row.get("carrier_strings", String[].class)))
+            .build())
+        .all();
+  }
+
+  /**
+   * Loads a shipping method with its channels, product types and carrier strings. The four selects are keyed by the
+   * public shipping method id and issued together on one connection, where the driver pipelines them, so the whole
+   * load costs a single round trip instead of four sequential ones.
+   */
+  public Mono<ShippingMethodWithMappings> findShippingMethodWithMappings(UUID shippingMethodId) {
+    return r2dbcEntityTemplate.getDatabaseClient().inConnection(connection -> Mono.zip(
+            select(connection, SHIPPING_METHOD_BY_ID, shippingMethodId, ShippingMethods.class).next(),
+            select(connection, CHANNELS_BY_SHIPPING_METHOD_ID, shippingMethodId, Channel.class).collectList(),
+            select(connection, PRODUCT_TYPES_BY_SHIPPING_METHOD_ID, shippingMethodId, ProductType.class).collectList(),
+            select(connection, CARRIER_STRINGS_BY_SHIPPING_METHOD_ID, shippingMethodId,
+                ShippingMethodCarrierString.class).collectList())
+        .map(loaded -> ShippingMethodWithMappings.builder()
+            .shippingMethod(loaded.getT1())
+            .channels(loaded.getT2())
+            .productTypes(loaded.getT3())
+            .carrierStrings(loaded.getT4())
+            .build()));
+  }
+
+  private <T> Flux<T> select(Connection connection, String sql, UUID shippingMethodId, Class<T> type) {
+    return Flux.from(connection.createStatement(sql).bind("$1", shippingMethodId).execute())
+        .concatMap(result -> result.map((row, metadata) -> r2dbcEntityTemplate.getConverter().read(type, row,
+            metadata)));
+  }
+
+  public Mono<Integer> deleteChannelMappings(Integer shippingMethodId, Collection<Integer> channelIds) {
+    return deleteMappings("shipping_method_channel_mapping", "channel_id", shippingMethodId, channelIds);
+  }
+
+  public Mono<Integer> deleteProductTypeMappings(Integer shippingMethodId, Collection<Integer> productTypeIds) {
+    return deleteMappings("shipping_method_product_type_mapping", "product_type_id", shippingMethodId,
+        productTypeIds);
+  }
+
+  private Mono<Integer> deleteMappings(String table, String column, Integer shippingMethodId,
+      Collection<Integer> ids) {
+    if (CollectionUtils.isEmpty(ids)) {
+      return Mono.just(0);
+    }
+    return new BoundQuery()
+        .append("delete from " + table + " where shipping_method_id = :shippingMethodId")
+        .bind("shippingMethodId", shippingMethodId)
+        .append(" and " + column + " in (:ids)")
+        .bind("ids", ids)
+        .bindTo(r2dbcEntityTemplate.getDatabaseClient())
+        .fetch()
+        .rowsUpdated();
+  }
+
+  private Mono<Boolean> exists(BoundQuery query) {
+    return query.bindTo(r2dbcEntityTemplate.getDatabaseClient())
+        .map(row -> Boolean.TRUE.equals(row.get(0, Boolean.class)))
+        .one()
+        .defaultIfEmpty(false);
+  }
+
+  private static List<String> toList(String[] values) {
+    return values == null ? List.of() : Arrays.stream(values).filter(Objects::nonNull).toList();
+  }
+
+  private static String[] nonNullValues(String[] values) {
+    return Arrays.stream(values).filter(Objects::nonNull).toArray(String[]::new);
+  }
+
+  private static String normalize(String channel) {
+    return channel.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * SQL text plus the values of the named parameters it references.
+   */
+  @Getter
+  static final class BoundQuery {
+
+    private final StringBuilder sql = new StringBuilder();
+    private final Map<String, Object> bindings = new LinkedHashMap<>();
+
+    BoundQuery append(String fragment) {
+      sql.append(fragment);
+      return this;
+    }
+
+    BoundQuery bind(String name, Object value) {
+      bindings.put(name, value instanceof Collection<?> collection ? new ArrayList<>(collection) : value);
+      return this;
+    }
+
+    String getSql() {
+      return sql.toString();
+    }
+
+    DatabaseClient.GenericExecuteSpec bindTo(DatabaseClient databaseClient) {
+      DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(getSql());
+      for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+        spec = spec.bind(binding.getKey(), binding.getValue());
+      }
+      return spec;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.domainname.next.shippingapi.repository;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.domainname.next.shippingapi.enums.Channel;
+
+class ShippingMethodQueryRepositoryTest {
+
+  private static final String STORED_CHANNEL = Channel.values()[0].toString();
+
+  @Test
+  void testAbsentFiltersEmitNoPredicate() {
+    ShippingMethodQueryRepository.BoundQuery query = ShippingMethodQueryRepository.buildFindByUniqueParams(1, null,
+        Set.of(), Set.of(), Set.of(), "homeDelivery", null);
+
+    Assertions.assertFalse(query.getSql().contains("channel_name in"));
+    Assertions.assertFalse(query.getSql().contains(":productTypes"));
+    Assertions.assertFalse(query.getSql().contains(":carrierServices"));
+    Assertions.assertTrue(query.getSql().contains("left join shipping_method_carrier_string"));
+    Assertions.assertEquals(Set.of("siteId", "fulfillmentType"), query.getBindings().keySet());
+  }
+
+  @Test
+  void testKnownChannelIsComparedAsStored() {
+    ShippingMethodQueryRepository.BoundQuery query = ShippingMethodQueryRepository.buildFindByUniqueParams(1,
+        STORED_CHANNEL.toLowerCase(Locale.ROOT), Set.of("inline"), Set.of(), Set.of(), "homeDelivery", null);
+
+    Assertions.assertTrue(query.getSql().contains(" and c.channel_name in (:channels)"));
+    Assertions.assertEquals(List.of(STORED_CHANNEL), query.getBindings().get("channels"));
+    Assertions.assertEquals(List.of("inline"), query.getBindings().get("productTypes"));
+  }
+
+  @Test
+  void testUnknownChannelIsComparedLowerCase() {
+    ShippingMethodQueryRepository.BoundQuery query = ShippingMethodQueryRepository.buildExistsByUniqueParams(1,
+        List.of("Not-A-Channel"), List.of(), List.of(), null, null);
+
+    Assertions.assertTrue(query.getSql().contains("lower(c.channel_name) in (:channels)"));
+    Assertions.assertEquals(List.of("not-a-channel"), query.getBindings().get("channels"));
+  }
+
+  @Test
+  void testAvailabilityStatusWithoutValuesMatchesNothing() {
+    ShippingMethodQueryRepository.BoundQuery query = ShippingMethodQueryRepository.buildFindByUniqueParams(1, null,
+        Set.of(), Set.of(), Set.of(), "homeDelivery", new String[]{});
+
+    Assertions.assertTrue(query.getSql().endsWith(" and false"));
+  }
+}
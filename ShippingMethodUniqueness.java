@@ -0,0 +1,111 @@
+package com.domainname.next.shippingapi.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.util.CollectionUtils;
+
+import com.domainname.next.shippingapi.resources.dto.ShippingMethodOption;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * In-memory counterpart of
+ * {@link com.domainname.next.shippingapi.repository.ShippingMethodQueryRepository#existsByUniqueSiteIdParameters}
+ * over the enabled shipping methods of one site: a combination conflicts with a shipping method of the same carrier
+ * service that shares a channel, a product type and a carrier string with it, an absent filter matching anything.
+ *
+ * Combinations added since the last {@link #commit()} are pending: they are checked against like any other, and
+ * {@link #rollback()} forgets them when their batch is not written.
+ *
+ * Not thread safe, an import adds its records one after the other.
+ */
+final class ShippingMethodUniqueness {
+
+  private final List<Key> keys = new ArrayList<>();
+  private final Map<String, List<Key>> byChannel = new HashMap<>();
+  private final List<Key> pending = new ArrayList<>();
+
+  static ShippingMethodUniqueness of(Collection<ShippingMethodOption> shippingMethods) {
+    ShippingMethodUniqueness uniqueness = new ShippingMethodUniqueness();
+    shippingMethods.forEach(shippingMethod -> uniqueness.put(shippingMethod.getChannels(),
+        shippingMethod.getProductTypes(), shippingMethod.getCarrierStrings(), shippingMethod.getCarrierService()));
+    return uniqueness;
+  }
+
+  /**
+   * Adds the combination unless it conflicts with one already known, returns whether it was added.
+   */
+  boolean add(Collection<String> channels, Collection<String> productTypes, Collection<String> carrierStrings,
+      String carrierService) {
+    if (conflicts(channels, productTypes, carrierStrings, carrierService)) {
+      return false;
+    }
+    pending.add(put(channels, productTypes, carrierStrings, carrierService));
+    return true;
+  }
+
+  void commit() {
+    pending.clear();
+  }
+
+  void rollback() {
+    Set<Key> rolledBack = Collections.newSetFromMap(new IdentityHashMap<>());
+    rolledBack.addAll(pending);
+    keys.removeIf(rolledBack::contains);
+    byChannel.values().forEach(channelKeys -> channelKeys.removeIf(rolledBack::contains));
+    pending.clear();
+  }
+
+  private boolean conflicts(Collection<String> channels, Collection<String> productTypes,
+      Collection<String> carrierStrings, String carrierService) {
+    Collection<Key> candidates = CollectionUtils.isEmpty(channels) ? keys
+        : normalize(channels).stream()
+            .map(byChannel::get)
+            .filter(Objects::nonNull)
+            .flatMap(List::stream)
+            .collect(Collectors.toSet());
+    return candidates.stream()
+        .anyMatch(key -> (carrierService == null || carrierService.equals(key.carrierService))
+            && intersects(productTypes, key.productTypes)
+            && intersects(carrierStrings, key.carrierStrings));
+  }
+
+  private Key put(Collection<String> channels, Collection<String> productTypes, Collection<String> carrierStrings,
+      String carrierService) {
+    Key key = new Key(carrierService, values(productTypes), values(carrierStrings));
+    keys.add(key);
+    normalize(channels).forEach(channel -> byChannel.computeIfAbsent(channel, ignored -> new ArrayList<>()).add(key));
+    return key;
+  }
+
+  private static boolean intersects(Collection<String> requested, Set<String> values) {
+    return CollectionUtils.isEmpty(requested) || requested.stream().anyMatch(values::contains);
+  }
+
+  private static Set<String> values(Collection<String> values) {
+    return values == null ? Set.of() : values.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+  }
+
+  // channels are compared as lower case values, as in the query
+  private static Set<String> normalize(Collection<String> channels) {
+    return values(channels).stream().map(channel -> channel.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+  }
+
+  @AllArgsConstructor
+  private static final class Key {
+
+    private final String carrierService;
+    private final Set<String> productTypes;
+    private final Set<String> carrierStrings;
+  }
+}
@@ -0,0 +1,66 @@
+package com.domainname.next.shippingapi.service;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.domainname.next.shippingapi.resources.dto.ShippingMethodOption;
+
+class ShippingMethodUniquenessTest {
+
+  private ShippingMethodUniqueness uniqueness;
+
+  @BeforeEach
+  void setup() {
+    uniqueness = ShippingMethodUniqueness.of(List.of(ShippingMethodOption.builder()
+        .carrierService("Standard")
+        .channels(List.of("Web"))
+        .productTypes(List.of("inline"))
+        .carrierStrings(List.of("CS-1"))
+        .build()));
+  }
+
+  @Test
+  void testConflictsOnSharedChannelProductTypeAndCarrierString() {
+    Assertions.assertFalse(uniqueness.add(List.of("WEB"), List.of("inline", "preorder"), List.of("CS-1"),
+        "Standard"));
+  }
+
+  @Test
+  void testAbsentFiltersMatchAnything() {
+    Assertions.assertFalse(uniqueness.add(List.of("web"), List.of(), null, null));
+  }
+
+  @Test
+  void testAddsCombinationWithoutSharedValues() {
+    Assertions.assertTrue(uniqueness.add(List.of("web"), List.of("inline"), List.of("CS-2"), "Standard"));
+    Assertions.assertTrue(uniqueness.add(List.of("mobile"), List.of("inline"), List.of("CS-1"), "Standard"));
+    Assertions.assertTrue(uniqueness.add(List.of("web"), List.of("inline"), List.of("CS-1"), "Express"));
+  }
+
+  @Test
+  void testAddedCombinationConflictsWithLaterOnes() {
+    Assertions.assertTrue(uniqueness.add(List.of("mobile"), List.of("inline"), List.of("CS-9"), "Express"));
+    Assertions.assertFalse(uniqueness.add(List.of("Mobile"), List.of("inline"), List.of("CS-9"), "Express"));
+  }
+
+  @Test
+  void testRolledBackCombinationNoLongerConflicts() {
+    Assertions.assertTrue(uniqueness.add(List.of("mobile"), List.of("inline"), List.of("CS-9"), "Express"));
+    uniqueness.rollback();
+
+    Assertions.assertTrue(uniqueness.add(List.of("mobile"), List.of("inline"), List.of("CS-9"), "Express"));
+    Assertions.assertFalse(uniqueness.add(List.of("web"), List.of("inline"), List.of("CS-1"), "Standard"));
+  }
+
+  @Test
+  void testCommittedCombinationSurvivesLaterRollback() {
+    Assertions.assertTrue(uniqueness.add(List.of("mobile"), List.of("inline"), List.of("CS-9"), "Express"));
+    uniqueness.commit();
+    uniqueness.rollback();
+
+    Assertions.assertFalse(uniqueness.add(List.of("mobile"), List.of("inline"), List.of("CS-9"), "Express"));
+  }
+}
@@ -0,0 +1,26 @@
+package com.domainname.next.shippingapi.resources.dto;
+
+import java.util.List;
+
+import com.domainname.next.shippingapi.entity.Channel;
+import com.domainname.next.shippingapi.entity.ProductType;
+import com.domainname.next.shippingapi.entity.ShippingMethodCarrierString;
+import com.domainname.next.shippingapi.entity.ShippingMethods;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A shipping method row together with its current channels, product types and carrier strings, as loaded for a
+ * patch.
+ */
+@Builder
+@Getter
+public class ShippingMethodWithMappings {
+
+  private final ShippingMethods shippingMethod;
+  private final List<Channel> channels;
+  private final List<ProductType> productTypes;
+  private final List<ShippingMethodCarrierString> carrierStrings;
+
+}
@@ -0,0 +1,22 @@
+package com.domainname.next.shippingapi.resources.request;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShippingOptionsBatchPostRequest {
+
+  @NotEmpty
+  @Valid
+  private List<ShippingOptionsPostRequest> requests;
+}
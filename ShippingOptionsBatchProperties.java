@@ -0,0 +1,15 @@
+package com.domainname.next.shippingapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "shipping-options-batch")
+public class ShippingOptionsBatchProperties {
+
+  private Integer maxRequests = 50;
+  // baskets of one batch processed at the same time
+  private Integer concurrency = 8;
+}
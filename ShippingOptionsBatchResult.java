@@ -0,0 +1,24 @@
+package com.domainname.next.shippingapi.resources.response;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Result of one request of a shipping options batch, keyed by its position in the batch. A failed request carries
+ * the status and detail it would have been answered with on its own instead of the options.
+ */
+@Builder
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ShippingOptionsBatchResult {
+
+  private final int index;
+  private final int status;
+  private final List<ShippingOptionsResponse> shippingOptions;
+  private final String detail;
+
+}
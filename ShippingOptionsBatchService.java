@@ -0,0 +1,89 @@
+package com.domainname.next.shippingapi.service;
+
+import static com.domainname.next.shippingapi.constant.ErrorConstants.INTERNAL_ERROR_CODE;
+import static com.domainname.next.shippingapi.constant.ErrorConstants.INVALID_FIELD_CODE;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.domainname.next.shippingapi.config.ShippingOptionsBatchProperties;
+import com.domainname.next.shippingapi.exception.NotFoundException;
+import com.domainname.next.shippingapi.exception.ShippingApiException;
+import com.domainname.next.shippingapi.exception.ValidationException;
+import com.domainname.next.shippingapi.resources.request.ShippingOptionsBatchPostRequest;
+import com.domainname.next.shippingapi.resources.request.ShippingOptionsPostRequest;
+import com.domainname.next.shippingapi.resources.response.ShippingOptionsBatchResult;
+import com.domainname.next.shippingapi.util.BatchLookupScope;
+import com.domainname.next.shippingapi.util.MessageHelper;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers many shipping options requests in one call. The requests run with bounded concurrency and share one
+ * {@link BatchLookupScope}, so the site configuration, Delivery Promise and Click and Collect promise lookups that
+ * several baskets have in common are made once per batch. Results are emitted as they complete, keyed by request
+ * index, and a failing request does not fail the others.
+ */
+@Service
+@Slf4j
+@AllArgsConstructor
+public class ShippingOptionsBatchService {
+
+  private final ShippingOptionsService shippingOptionsService;
+  private final ShippingOptionsBatchProperties properties;
+  private final MessageHelper messageHelper;
+
+  public Flux<ShippingOptionsBatchResult> createShippingOptions(ShippingOptionsBatchPostRequest batchRequest,
+      List<String> embed) {
+    List<ShippingOptionsPostRequest> requests = batchRequest.getRequests();
+    if (requests.size() > properties.getMaxRequests()) {
+      return Flux.error(new ValidationException(new HttpClientErrorException(HttpStatus.UNPROCESSABLE_ENTITY),
+          INVALID_FIELD_CODE, "requests"));
+    }
+    BatchLookupScope scope = new BatchLookupScope();
+    return Flux.range(0, requests.size())
+        .flatMap(index -> createShippingOptions(index, requests.get(index), embed), properties.getConcurrency())
+        .doOnComplete(() -> log.debug("Processed shipping options batch of {} requests with {} shared lookups",
+            requests.size(), scope.size()))
+        .contextWrite(context -> context.put(BatchLookupScope.class, scope));
+  }
+
+  private Mono<ShippingOptionsBatchResult> createShippingOptions(int index,
+      ShippingOptionsPostRequest shippingOptionsRequest, List<String> embed) {
+    return shippingOptionsService.createShippingOptions(shippingOptionsRequest, embed)
+        .map(shippingOptions -> ShippingOptionsBatchResult.builder()
+            .index(index)
+            .status(HttpStatus.OK.value())
+            .shippingOptions(shippingOptions)
+            .build())
+        .onErrorResume(throwable -> Mono.just(failedResult(index, shippingOptionsRequest, throwable)));
+  }
+
+  private ShippingOptionsBatchResult failedResult(int index, ShippingOptionsPostRequest shippingOptionsRequest,
+      Throwable throwable) {
+    HttpStatus status;
+    String detail;
+    if (throwable instanceof ShippingApiException shippingApiException) {
+      status = throwable instanceof NotFoundException ? HttpStatus.NOT_FOUND
+          : throwable instanceof ValidationException ? HttpStatus.UNPROCESSABLE_ENTITY
+          : HttpStatus.INTERNAL_SERVER_ERROR;
+      detail = messageHelper.buildMessage(shippingApiException.getMessageCode(), shippingApiException.getArgs());
+    } else {
+      log.error("Error in batch shipping options request {} for siteId : {}", index,
+          shippingOptionsRequest.getSiteId(), throwable);
+      status = HttpStatus.INTERNAL_SERVER_ERROR;
+      detail = messageHelper.buildMessage(INTERNAL_ERROR_CODE);
+    }
+    return ShippingOptionsBatchResult.builder()
+        .index(index)
+        .status(status.value())
+        .detail(detail)
+        .build();
+  }
+}
@@ -9,6 +9,7 @@ import javax.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -18,11 +19,15 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.domainname.next.shippingapi.annotation.FulfillmentCollectionPattern;
 import com.domainname.next.shippingapi.enums.FulfillmentType;
+import com.domainname.next.shippingapi.resources.request.ShippingOptionsBatchPostRequest;
 import com.domainname.next.shippingapi.resources.request.ShippingOptionsPostRequest;
+import com.domainname.next.shippingapi.resources.response.ShippingOptionsBatchResult;
 import com.domainname.next.shippingapi.resources.response.ShippingOptionsResponse;
+import com.domainname.next.shippingapi.service.ShippingOptionsBatchService;
 import com.domainname.next.shippingapi.service.ShippingOptionsService;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -32,9 +37,12 @@ import reactor.core.publisher.Mono;
 public class ShippingOptionsController {
 
   private final ShippingOptionsService shippingOptionsService;
+  private final ShippingOptionsBatchService shippingOptionsBatchService;
 
-  public ShippingOptionsController(ShippingOptionsService shippingOptionsService) {
+  public ShippingOptionsController(ShippingOptionsService shippingOptionsService,
+      ShippingOptionsBatchService shippingOptionsBatchService) {
     this.shippingOptionsService = shippingOptionsService;
+    this.shippingOptionsBatchService = shippingOptionsBatchService;
   }
 
   @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
@@ -44,9 +52,46 @@ public class ShippingOptionsController {
       @RequestParam(value = "embed", required = false) List<String> embed) {
     String siteId = shippingOptionsRequest.getSiteId();
     return shippingOptionsService.createShippingOptions(shippingOptionsRequest,embed)
-        .doFirst(() -> log.info("Request received to get shipping Options {}", siteId))
+        .doFirst(() -> log.debug("Request received to get shipping Options {}", siteId))
         .map(shippingOptions -> ResponseEntity.status(HttpStatus.OK).body(shippingOptions))
-        .doOnEach(request -> log.info("Shipping options retrieved successfully : {}", siteId))
+        .doOnEach(request -> log.debug("Shipping options retrieved successfully : {}", siteId))
         .doOnError(throwable -> log.error("Error in retrieving shipping options : {}", siteId));
   }
+
+  @PostMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<Object>> streamShippingOptionsEvents(
+      @Valid @RequestBody ShippingOptionsPostRequest shippingOptionsRequest,
+      @FulfillmentCollectionPattern(targetClassType = FulfillmentType.class, message = INVALID_FIELD_CODE)
+      @RequestParam(value = "embed", required = false) List<String> embed) {
+    return OptionsStream.serverSentEvents(streamShippingOptions(shippingOptionsRequest, embed));
+  }
+
+  @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<Object> streamShippingOptionsNdjson(
+      @Valid @RequestBody ShippingOptionsPostRequest shippingOptionsRequest,
+      @FulfillmentCollectionPattern(targetClassType = FulfillmentType.class, message = INVALID_FIELD_CODE)
+      @RequestParam(value = "embed", required = false) List<String> embed) {
+    return OptionsStream.ndjson(streamShippingOptions(shippingOptionsRequest, embed));
+  }
+
+  @PostMapping(path = "/batch", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+  public Flux<ShippingOptionsBatchResult> createShippingOptionsBatch(
+      @Valid @RequestBody ShippingOptionsBatchPostRequest shippingOptionsBatchRequest,
+      @FulfillmentCollectionPattern(targetClassType = FulfillmentType.class, message = INVALID_FIELD_CODE)
+      @RequestParam(value = "embed", required = false) List<String> embed) {
+    int requests = shippingOptionsBatchRequest.getRequests().size();
+    return shippingOptionsBatchService.createShippingOptions(shippingOptionsBatchRequest, embed)
+        .doFirst(() -> log.debug("Request received to get shipping Options for a batch of {}", requests))
+        .doOnComplete(() -> log.debug("Shipping options batch of {} processed", requests))
+        .doOnError(throwable -> log.error("Error in retrieving shipping options batch of {}", requests));
+  }
+
+  private Flux<ShippingOptionsResponse> streamShippingOptions(ShippingOptionsPostRequest shippingOptionsRequest,
+      List<String> embed) {
+    String siteId = shippingOptionsRequest.getSiteId();
+    return shippingOptionsService.streamShippingOptions(shippingOptionsRequest, embed)
+        .doFirst(() -> log.debug("Request received to stream shipping Options {}", siteId))
+        .doOnComplete(() -> log.debug("Shipping options streamed successfully : {}", siteId))
+        .doOnError(throwable -> log.error("Error in streaming shipping options : {}", siteId));
+  }
 }
@@ -2,30 +2,35 @@ package com.domainname.next.shippingapi.service;
 
 import static com.domainname.next.shippingapi.constant.ErrorConstants.NOT_FOUND_ANY_FULFILLMENT_METHOD;
 import static com.domainname.next.shippingapi.constant.ErrorConstants.NOT_FOUND_CODE;
+import static com.domainname.next.shippingapi.constant.ErrorConstants.SITEID_NOT_FOUND_CODE;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 
+import com.domainname.next.shippingapi.config.FulfillmentBudgetProperties;
 import com.domainname.next.shippingapi.entity.FulfillmentOption;
 import com.domainname.next.shippingapi.entity.SiteId;
 import com.domainname.next.shippingapi.enums.FulfillmentType;
 import com.domainname.next.shippingapi.enums.LineType;
 import com.domainname.next.shippingapi.exception.NotFoundException;
+import com.domainname.next.shippingapi.filter.RequestDeadline;
+import com.domainname.next.shippingapi.filter.RequestEvent;
 import com.domainname.next.shippingapi.repository.FulfillmentMethodsRepository;
 import com.domainname.next.shippingapi.repository.SiteIdRepository;
 import com.domainname.next.shippingapi.resources.request.ProductLine;
 import com.domainname.next.shippingapi.resources.request.ShippingOptionsPostRequest;
 import com.domainname.next.shippingapi.resources.response.ShippingOptionsResponse;
+import com.domainname.next.shippingapi.util.ShippingOptionsUtil;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -38,54 +43,122 @@ public class ShippingOptionsService extends ShippingOptionsBaseService {
   private static final String HOMEDELIVERY = FulfillmentType.HOMEDELIVERY.getValue();
   private static final String PUDO = FulfillmentType.PUDO.getValue();
   private static final String DIGITAL = FulfillmentType.DIGITAL.getValue();
+  private static final Set<String> SUPPORTED_FULFILLMENT_TYPES = Set.of(HOMEDELIVERY, CNC, PUDO, DIGITAL);
+  private static final String BUDGET_EXCEEDED_METRIC = "shipping_options_budget_exceeded";
 
   private final ShippingOptionsServiceHelper shippingOptionsServiceHelper;
+  private final SiteConfigurationCache siteConfigurationCache;
+  private final FulfillmentBudgetProperties fulfillmentBudgetProperties;
+  private final MeterRegistry meterRegistry;
 
   public ShippingOptionsService(FulfillmentMethodsRepository fulfillmentMethodsRepository,
       SiteIdRepository siteIdRepository,
-      ShippingOptionsServiceHelper shippingOptionsServiceHelper
+      ShippingOptionsServiceHelper shippingOptionsServiceHelper,
+      SiteConfigurationCache siteConfigurationCache,
+      FulfillmentBudgetProperties fulfillmentBudgetProperties,
+      MeterRegistry meterRegistry
   ) {
     super(fulfillmentMethodsRepository, siteIdRepository);
     this.shippingOptionsServiceHelper = shippingOptionsServiceHelper;
+    this.siteConfigurationCache = siteConfigurationCache;
+    this.fulfillmentBudgetProperties = fulfillmentBudgetProperties;
+    this.meterRegistry = meterRegistry;
   }
 
   public Mono<List<ShippingOptionsResponse>> createShippingOptions(ShippingOptionsPostRequest shippingOptionsRequest,
       List<String> embed) {
-    log.info("Processing createShippingOptions for shippingOptionsRequest : {}", shippingOptionsRequest);
-    List<ShippingOptionsResponse> shippingOptionsResponseList = new ArrayList<>();
+    log.debug("Processing createShippingOptions for shippingOptionsRequest : {}", shippingOptionsRequest);
+    return shippingOptions(shippingOptionsRequest, embed, true).collectList();
+  }
+
+  /**
+   * Streaming variant of {@link #createShippingOptions}: every option is emitted as soon as its fulfillment type
+   * completes, so fast types are not held back by the slow ones.
+   */
+  public Flux<ShippingOptionsResponse> streamShippingOptions(ShippingOptionsPostRequest shippingOptionsRequest,
+      List<String> embed) {
+    log.debug("Processing streamShippingOptions for shippingOptionsRequest : {}", shippingOptionsRequest);
+    return shippingOptions(shippingOptionsRequest, embed, false);
+  }
+
+  private Flux<ShippingOptionsResponse> shippingOptions(ShippingOptionsPostRequest shippingOptionsRequest,
+      List<String> embed, boolean ordered) {
     String siteId = shippingOptionsRequest.getSiteId();
     List<String> fulfillmentTypes = getFulfillmentList(embed);
     List<ProductLine> productLinesDigital = getProductLinesDigital(shippingOptionsRequest);
     shippingOptionsRequest.setProductLines(shippingOptionsRequest.getProductLines().stream()
         .filter(productLine -> !LineType.EGIFTCARD.getValue().equals(productLine.getLineType()))
         .toList());
-    return getSiteId(siteId).flatMap(siteIdResponse -> getFulfillmentOptions(siteIdResponse, fulfillmentTypes)
+    // unknown sites are answered from the cached empty result, without another lookup
+    return RequestEvent.timed(RequestEvent.STAGE_SITE_CONFIGURATION,
+            siteConfigurationCache.getSiteConfiguration(siteId))
+        .switchIfEmpty(Mono.error(() -> new NotFoundException(new HttpClientErrorException(HttpStatus.NOT_FOUND),
+            SITEID_NOT_FOUND_CODE, siteId)))
+        .flatMapMany(siteConfiguration -> Mono.just(siteConfiguration.getEnabledFulfillmentOptions(fulfillmentTypes))
         .doFirst(() -> log.debug("Processing Shipping Options request for siteId : {}", siteId))
-        .flatMap(fulfillmentOptionMap -> Optional.ofNullable(embed).filter(Predicate.not(List::isEmpty))
-            .map(validMap -> validateFulfillmentOptionsForSiteId(fulfillmentOptionMap, embed, siteId)).orElse(Flux.just(""))
-            .flatMap(fulfillmentType -> checkFulfillmentOption(shippingOptionsRequest, productLinesDigital,
-                fulfillmentOptionMap, siteIdResponse, fulfillmentType, shippingOptionsResponseList))
-            .switchIfEmpty(Mono.defer(() -> createAllShippingOptions(shippingOptionsRequest,
-                productLinesDigital, shippingOptionsResponseList, fulfillmentOptionMap, siteIdResponse)))
-            .then(Mono.just(shippingOptionsResponseList))
-            .map(shippingOptionsResponse -> sortShippingOptionsResponse(shippingOptionsResponse,fulfillmentOptionMap))));
+        .flatMapMany(fulfillmentOptionMap -> Optional.ofNullable(embed).filter(Predicate.not(List::isEmpty))
+            .map(selectedEmbedOptions -> createShippingOptions(shippingOptionsRequest, productLinesDigital,
+                validateFulfillmentOptionsForSiteId(fulfillmentOptionMap, embed, siteId), fulfillmentOptionMap,
+                siteConfiguration.getSiteId(), ordered))
+            .orElse(Flux.empty())
+            .switchIfEmpty(Flux.defer(() -> createAllShippingOptions(shippingOptionsRequest,
+                productLinesDigital, fulfillmentOptionMap, siteConfiguration.getSiteId(), ordered)))));
   }
 
-  private Mono<Boolean> createAllShippingOptions(ShippingOptionsPostRequest shippingOptionsRequest,
-      List<ProductLine> productLinesDigital,
-      List<ShippingOptionsResponse> shippingOptionsResponseList, Map<String, FulfillmentOption> fulfillmentOptionMap,
-      SiteId siteId) {
-    return Flux.fromIterable(fulfillmentOptionMap.keySet())
-        .flatMap(fulfillmentType -> {
-          if (fulfillmentType.equals(HOMEDELIVERY) || fulfillmentType.equals(CNC) || fulfillmentType.equals(PUDO)
-              || fulfillmentType.equals(DIGITAL)) {
-            return createShippingOption(shippingOptionsRequest, productLinesDigital, fulfillmentType,
-                                        fulfillmentOptionMap, siteId).map(shippingOptionsResponseList::add);
-          }
-          return Mono.empty();
-        }).switchIfEmpty(Mono.error(new NotFoundException(new HttpClientErrorException(HttpStatus.NOT_FOUND)
-            , NOT_FOUND_ANY_FULFILLMENT_METHOD, siteId.getName())))
-        .then(Mono.just(true));
+  private Flux<ShippingOptionsResponse> createAllShippingOptions(ShippingOptionsPostRequest shippingOptionsRequest,
+      List<ProductLine> productLinesDigital, Map<String, FulfillmentOption> fulfillmentOptionMap, SiteId siteId,
+      boolean ordered) {
+    return createShippingOptions(shippingOptionsRequest, productLinesDigital,
+        Flux.fromIterable(fulfillmentOptionMap.keySet()), fulfillmentOptionMap, siteId, ordered)
+        .switchIfEmpty(Mono.error(new NotFoundException(new HttpClientErrorException(HttpStatus.NOT_FOUND)
+            , NOT_FOUND_ANY_FULFILLMENT_METHOD, siteId.getName())));
+  }
+
+  /**
+   * Runs the flows of the given fulfillment types concurrently. Ordered, the responses come in the order the types
+   * are emitted, which is the configured position of the site's fulfillment options; otherwise as they complete.
+   */
+  private Flux<ShippingOptionsResponse> createShippingOptions(ShippingOptionsPostRequest shippingOptionsRequest,
+      List<ProductLine> productLinesDigital, Flux<String> fulfillmentTypes,
+      Map<String, FulfillmentOption> fulfillmentOptionMap, SiteId siteId, boolean ordered) {
+    Flux<String> supportedFulfillmentTypes = fulfillmentTypes.filter(SUPPORTED_FULFILLMENT_TYPES::contains);
+    if (ordered) {
+      return supportedFulfillmentTypes.flatMapSequential(fulfillmentType -> createShippingOptionWithinBudget(
+          shippingOptionsRequest, productLinesDigital, fulfillmentType, fulfillmentOptionMap, siteId));
+    }
+    return supportedFulfillmentTypes.flatMap(fulfillmentType -> createShippingOptionWithinBudget(
+        shippingOptionsRequest, productLinesDigital, fulfillmentType, fulfillmentOptionMap, siteId));
+  }
+
+  /**
+   * A fulfillment type that misses its budget is answered with its empty option, so that one slow dependency does
+   * not hold back the options of the other types. The budget never runs past the request deadline.
+   */
+  private Mono<ShippingOptionsResponse> createShippingOptionWithinBudget(
+      ShippingOptionsPostRequest shippingOptionsRequest, List<ProductLine> productLinesDigital, String fulfillmentType,
+      Map<String, FulfillmentOption> fulfillmentOptionMap, SiteId siteId) {
+    Mono<ShippingOptionsResponse> shippingOption = RequestEvent.timed(RequestEvent.STAGE_FULFILLMENT_PREFIX
+        + fulfillmentType, createShippingOption(shippingOptionsRequest, productLinesDigital, fulfillmentType,
+            fulfillmentOptionMap, siteId));
+    if (!fulfillmentBudgetProperties.isEnabled()) {
+      return shippingOption;
+    }
+    return Mono.deferContextual(context -> {
+      Duration budget = Duration.ofMillis(fulfillmentBudgetProperties.getBudgetMillis(fulfillmentType));
+      Duration remaining = RequestDeadline.from(context)
+          .map(deadline -> deadline.remaining()
+              .minusMillis(fulfillmentBudgetProperties.getDeadlineReserveMillis()))
+          .filter(reserved -> reserved.compareTo(budget) < 0)
+          .map(reserved -> reserved.isNegative() ? Duration.ZERO : reserved)
+          .orElse(budget);
+      return shippingOption.timeout(remaining, Mono.defer(() -> {
+        log.warn("Fulfillment type {} exceeded its budget of {} ms for siteId : {}, returning empty option",
+            fulfillmentType, remaining.toMillis(), siteId.getName());
+        meterRegistry.counter(BUDGET_EXCEEDED_METRIC, "fulfillment_type", fulfillmentType).increment();
+        return ShippingOptionsUtil.buildShippingOptionsEmptyResponse(fulfillmentOptionMap.get(fulfillmentType),
+            shippingOptionsRequest);
+      }));
+    });
   }
 
   private Mono<ShippingOptionsResponse> createShippingOption(ShippingOptionsPostRequest shippingOptionsRequest,
@@ -123,17 +196,6 @@ public class ShippingOptionsService extends ShippingOptionsBaseService {
                                                         NOT_FOUND_CODE, embed.get(0), siteId)));
   }
 
-  private Mono<Boolean> checkFulfillmentOption(ShippingOptionsPostRequest shippingOptionsRequest,
-      List<ProductLine> productLinesDigital, Map<String, FulfillmentOption> fulfillmentOptionMap,
-      SiteId siteIdResponse, String fulfillmentType, List<ShippingOptionsResponse> shippingOptionsResponseList) {
-    if (HOMEDELIVERY.equals(fulfillmentType) || CNC.equals(fulfillmentType) || PUDO.equals(fulfillmentType)
-        || DIGITAL.equals(fulfillmentType)) {
-      return createShippingOption(shippingOptionsRequest, productLinesDigital, fulfillmentType,
-          fulfillmentOptionMap, siteIdResponse).map(shippingOptionsResponseList::add);
-    }
-    return Mono.empty();
-  }
-  
   private static List<ProductLine> getProductLinesDigital(ShippingOptionsPostRequest shippingOptionsRequest) {
     return shippingOptionsRequest.getProductLines().stream()
         .filter(productLine -> LineType.EGIFTCARD.getValue().equals(productLine.getLineType()))
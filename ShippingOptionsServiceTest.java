@@ -0,0 +1,125 @@
+package com.domainname.next.shippingapi.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.domainname.next.shippingapi.TestHelper;
+import com.domainname.next.shippingapi.config.FulfillmentBudgetProperties;
+import com.domainname.next.shippingapi.entity.FulfillmentOption;
+import com.domainname.next.shippingapi.entity.SiteId;
+import com.domainname.next.shippingapi.enums.FulfillmentType;
+import com.domainname.next.shippingapi.repository.FulfillmentMethodsRepository;
+import com.domainname.next.shippingapi.repository.SiteIdRepository;
+import com.domainname.next.shippingapi.resources.dto.SiteConfigurationSnapshot;
+import com.domainname.next.shippingapi.resources.request.ShippingOptionsPostRequest;
+import com.domainname.next.shippingapi.resources.response.ShippingOptionsResponse;
+import com.domainname.next.shippingapi.util.ShippingOptionsUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+class ShippingOptionsServiceTest extends TestHelper {
+
+  private static final String SITE_NAME = "adidas-GB";
+  private static final String HOMEDELIVERY = FulfillmentType.HOMEDELIVERY.getValue();
+  private static final String CNC = FulfillmentType.CLICKANDCOLLECT.getValue();
+
+  @Mock
+  FulfillmentMethodsRepository fulfillmentMethodsRepository;
+
+  @Mock
+  SiteIdRepository siteIdRepository;
+
+  @Mock
+  ShippingOptionsServiceHelper shippingOptionsServiceHelper;
+
+  @Mock
+  SiteConfigurationCache siteConfigurationCache;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final FulfillmentBudgetProperties fulfillmentBudgetProperties = new FulfillmentBudgetProperties();
+  private final ShippingOptionsPostRequest shippingOptionsRequest = Mockito.mock(ShippingOptionsPostRequest.class);
+
+  private ShippingOptionsService shippingOptionsService;
+
+  @BeforeEach
+  void setup() {
+    SiteId siteId = buildSiteId();
+    Map<String, FulfillmentOption> fulfillmentOptions = new LinkedHashMap<>();
+    fulfillmentOptions.put(HOMEDELIVERY, FulfillmentOption.builder().fulfillmentType(HOMEDELIVERY).build());
+    fulfillmentOptions.put(CNC, FulfillmentOption.builder().fulfillmentType(CNC).build());
+    Mockito.when(siteConfigurationCache.getSiteConfiguration(SITE_NAME))
+        .thenReturn(Mono.just(new SiteConfigurationSnapshot(1, siteId, fulfillmentOptions)));
+    Mockito.when(shippingOptionsRequest.getSiteId()).thenReturn(SITE_NAME);
+    Mockito.when(shippingOptionsRequest.getProductLines()).thenReturn(List.of());
+    fulfillmentBudgetProperties.setEnabled(true);
+    fulfillmentBudgetProperties.setDefaultBudgetMillis(50L);
+    shippingOptionsService = new ShippingOptionsService(fulfillmentMethodsRepository, siteIdRepository,
+        shippingOptionsServiceHelper, siteConfigurationCache, fulfillmentBudgetProperties, meterRegistry);
+  }
+
+  @Test
+  void testFulfillmentTypeOverBudgetIsAnsweredWithEmptyOption() {
+    ShippingOptionsResponse emptyHomeDeliveryResponse = ShippingOptionsUtil.buildShippingOptionsEmptyResponse(
+        FulfillmentOption.builder().fulfillmentType(HOMEDELIVERY).build(), shippingOptionsRequest).block();
+    ShippingOptionsResponse cncResponse = Mockito.mock(ShippingOptionsResponse.class);
+    Mockito.when(shippingOptionsServiceHelper.createDPEHD(Mockito.any(), Mockito.any(), Mockito.any()))
+        .thenReturn(Mono.never());
+    Mockito.when(shippingOptionsServiceHelper.createCNCDPE(Mockito.any(), Mockito.any(), Mockito.any(),
+        Mockito.any())).thenReturn(Mono.just(cncResponse));
+
+    StepVerifier.create(shippingOptionsService.createShippingOptions(shippingOptionsRequest,
+            List.of(HOMEDELIVERY, CNC)))
+        .assertNext(responses -> {
+          Assertions.assertEquals(2, responses.size());
+          // home delivery keeps its position and is answered with its empty option, not a response of another type
+          Assertions.assertEquals(json(emptyHomeDeliveryResponse), json(responses.get(0)));
+          Assertions.assertSame(cncResponse, responses.get(1));
+        })
+        .verifyComplete();
+
+    Assertions.assertEquals(1, meterRegistry.counter("shipping_options_budget_exceeded",
+        "fulfillment_type", HOMEDELIVERY).count());
+  }
+
+  @Test
+  void testBudgetIsNotAppliedWhenDisabled() {
+    fulfillmentBudgetProperties.setEnabled(false);
+    Mockito.when(shippingOptionsServiceHelper.createDPEHD(Mockito.any(), Mockito.any(), Mockito.any()))
+        .thenReturn(Mono.never());
+    Mockito.when(shippingOptionsServiceHelper.createCNCDPE(Mockito.any(), Mockito.any(), Mockito.any(),
+        Mockito.any())).thenReturn(Mono.just(Mockito.mock(ShippingOptionsResponse.class)));
+
+    StepVerifier.create(shippingOptionsService.createShippingOptions(shippingOptionsRequest,
+            List.of(HOMEDELIVERY, CNC)))
+        .expectSubscription()
+        .expectNoEvent(Duration.ofMillis(200))
+        .thenCancel()
+        .verify();
+
+    Assertions.assertEquals(0, meterRegistry.counter("shipping_options_budget_exceeded",
+        "fulfillment_type", HOMEDELIVERY).count());
+  }
+
+  private static String json(ShippingOptionsResponse response) {
+    try {
+      return new ObjectMapper().writeValueAsString(response);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
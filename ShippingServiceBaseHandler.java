@@ -1,18 +1,29 @@
 package com.domainname.next.shippingapi.service;
 
+import static com.domainname.next.shippingapi.constant.ErrorConstants.SITEID_NOT_FOUND_CODE;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.client.HttpClientErrorException;
 
+import com.domainname.next.shippingapi.config.ShippingMethodExportProperties;
 import com.domainname.next.shippingapi.converter.ShippingMethodResponseConverter;
 import com.domainname.next.shippingapi.converter.ShippingPatchRequestConverter;
+import com.domainname.next.shippingapi.entity.Channel;
+import com.domainname.next.shippingapi.entity.ProductType;
 import com.domainname.next.shippingapi.entity.ShippingMethodCarrierString;
 import com.domainname.next.shippingapi.entity.ShippingMethods;
 import com.domainname.next.shippingapi.entity.SiteId;
+import com.domainname.next.shippingapi.exception.NotFoundException;
 import com.domainname.next.shippingapi.repository.ChannelRepository;
 import com.domainname.next.shippingapi.repository.ProductTypeRepository;
+import com.domainname.next.shippingapi.repository.ShippingMethodQueryRepository;
 import com.domainname.next.shippingapi.repository.ShippingMethodRepository;
 import com.domainname.next.shippingapi.resources.request.ShippingMethodPostRequest;
 import com.domainname.next.shippingapi.resources.request.ShippingPatchRequest;
@@ -20,7 +31,10 @@ import com.domainname.next.shippingapi.resources.response.ShippingMethodsRespons
 import com.domainname.next.shippingapi.resources.response.rule.ShippingMethodsRuleResponse;
 
 import lombok.AllArgsConstructor;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 
 @AllArgsConstructor
@@ -41,6 +55,12 @@ public class ShippingServiceBaseHandler {
 
   private final ShippingServiceBaseHelper shippingServiceBaseHelper;
 
+  private final TransactionalOperator transactionalOperator;
+
+  private final ShippingMethodQueryRepository shippingMethodQueryRepository;
+
+  private final ShippingMethodExportProperties shippingMethodExportProperties;
+
 
   public Mono<ShippingMethodsResponse> buildShippingMethodResponse (
       ShippingPatchRequest shippingPatchRequest,
@@ -50,10 +70,57 @@ public class ShippingServiceBaseHandler {
       List<ShippingMethodCarrierString> allCarrierStrings
   ) {
 
+    return findCurrentMappings(shippingMethods)
+        .flatMap(currentMappings -> buildShippingMethodResponse(shippingPatchRequest, siteId, convertedShippingMethod,
+            shippingMethods, allCarrierStrings, currentMappings.getT1(), currentMappings.getT2()));
+  }
+
+
+  /**
+   * Converts and applies a patch with the current mappings loaded once: they feed the converter and are the base the
+   * mapping diff is computed against.
+   */
+  public Mono<ShippingMethodsResponse> patchShippingMethod (
+      ShippingPatchRequest shippingPatchRequest,
+      SiteId siteId,
+      ShippingMethods shipMethod,
+      List<ShippingMethodCarrierString> carrierStringList,
+      List<ShippingMethodCarrierString> allCarrierStrings
+  ) {
+
+    return findCurrentMappings(shipMethod)
+        .flatMap(currentMappings -> shippingPatchRequestConverter.apply(shipMethod,
+                                                                       shippingPatchRequest,
+                                                                       currentMappings.getT1(),
+                                                                       currentMappings.getT2(),
+                                                                       carrierStringList
+            )
+            .flatMap(convertedShippingMethod -> buildShippingMethodResponse(shippingPatchRequest, siteId,
+                convertedShippingMethod, shipMethod, allCarrierStrings, currentMappings.getT1(),
+                currentMappings.getT2())));
+  }
+
+
+  /**
+   * Applies the patch against the mappings the shipping method had when it was loaded, so that only the channels and
+   * product types that actually changed are written, all in one transaction.
+   */
+  public Mono<ShippingMethodsResponse> buildShippingMethodResponse (
+      ShippingPatchRequest shippingPatchRequest,
+      SiteId siteId,
+      ShippingMethods convertedShippingMethod,
+      ShippingMethods shippingMethods,
+      List<ShippingMethodCarrierString> allCarrierStrings,
+      List<Channel> currentChannels,
+      List<ProductType> currentProductTypes
+  ) {
+
     List<ShippingMethodCarrierString> newCarrierStrings = new ArrayList<>();
-    return shippingServiceHelper.updateChannels(convertedShippingMethod.getChannels(), shippingMethods)
+    return shippingServiceHelper.updateChannels(convertedShippingMethod.getChannels(), currentChannels,
+            shippingMethods)
         .flatMap(channels -> shippingServiceHelper.updateProductTypes(
                 convertedShippingMethod.getProductTypes(),
+                currentProductTypes,
                 shippingMethods
             )
             .flatMap(productTypes -> shippingServiceBaseHelper.updateCarrierString(
@@ -62,14 +129,48 @@ public class ShippingServiceBaseHandler {
                     newCarrierStrings
                 )
                 .flatMap(isCarrierStrings -> shippingMethodRepository.save(convertedShippingMethod)
-                    .flatMap(shippingMethodResponse -> shippingMethodResponseConverter.buildShippingMethodsResponse(
-                        shippingMethodResponse,
-                        siteId.getName(),
-                        channels,
-                        productTypes,
-                        newCarrierStrings,
-                        allCarrierStrings
-                    )))));
+                    .map(shippingMethodResponse -> Tuples.of(shippingMethodResponse, channels, productTypes)))))
+        .as(transactionalOperator::transactional)
+        .flatMap(saved -> shippingMethodResponseConverter.buildShippingMethodsResponse(
+            saved.getT1(),
+            siteId.getName(),
+            saved.getT2(),
+            saved.getT3(),
+            newCarrierStrings,
+            allCarrierStrings
+        ));
+  }
+
+
+  /**
+   * Patches the shipping method with the given public id, loading the row, its mappings and its carrier strings in
+   * a single round trip. Empty when no such shipping method exists.
+   */
+  public Mono<ShippingMethodsResponse> patchShippingMethod (
+      ShippingPatchRequest shippingPatchRequest,
+      SiteId siteId,
+      UUID shippingMethodId
+  ) {
+
+    return shippingMethodQueryRepository.findShippingMethodWithMappings(shippingMethodId)
+        .flatMap(loaded -> shippingPatchRequestConverter.apply(loaded.getShippingMethod(),
+                                                               shippingPatchRequest,
+                                                               loaded.getChannels(),
+                                                               loaded.getProductTypes(),
+                                                               loaded.getCarrierStrings()
+            )
+            .flatMap(convertedShippingMethod -> buildShippingMethodResponse(shippingPatchRequest, siteId,
+                convertedShippingMethod, loaded.getShippingMethod(), loaded.getCarrierStrings(), loaded.getChannels(),
+                loaded.getProductTypes())));
+  }
+
+
+  private Mono<Tuple2<List<Channel>, List<ProductType>>> findCurrentMappings (ShippingMethods shippingMethods) {
+
+    return Mono.zip(
+        channelRepository.findChannelByShippingId(shippingMethods.getId()).collectList(),
+        productTypeRepository.findProductTypeByShippingId(shippingMethods.getId()).collectList()
+    );
   }
 
 
@@ -79,13 +180,38 @@ public class ShippingServiceBaseHandler {
       ShippingPatchRequest shippingPatchRequest
   ) {
 
-    return channelRepository.findChannelByShippingId(shipMethod.getId()).collectList()
-        .flatMap(channelList -> productTypeRepository.findProductTypeByShippingId(shipMethod.getId()).collectList()
-            .flatMap(productTypeList -> shippingPatchRequestConverter.apply(shipMethod,
-                                                                            shippingPatchRequest,
-                                                                            channelList,
-                                                                            productTypeList,
-                                                                            carrierStringList
+    return findCurrentMappings(shipMethod)
+        .flatMap(currentMappings -> shippingPatchRequestConverter.apply(shipMethod,
+                                                                        shippingPatchRequest,
+                                                                        currentMappings.getT1(),
+                                                                        currentMappings.getT2(),
+                                                                        carrierStringList
+        ));
+  }
+
+
+  /**
+   * Inserts the shipping method and all of its mappings in one transaction, so that a failing mapping leaves nothing
+   * behind.
+   */
+  public Mono<ShippingMethodsResponse> createShippingMethod (
+      ShippingMethodPostRequest shippingRequest,
+      ShippingMethods shippingMethods,
+      String siteId
+  ) {
+
+    return lookupMappings(shippingRequest)
+        .flatMap(mappings -> shippingMethodRepository.save(shippingMethods)
+            .flatMap(savedShippingMethod -> saveMappings(shippingRequest, savedShippingMethod, mappings)
+                .map(carrierStrings -> Tuples.of(savedShippingMethod, carrierStrings)))
+            .as(transactionalOperator::transactional)
+            .flatMap(saved -> shippingMethodResponseConverter.buildShippingMethodsResponse(
+                saved.getT1(),
+                siteId,
+                mappings.getT1(),
+                mappings.getT2(),
+                saved.getT2(),
+                new ArrayList<>()
             )));
   }
 
@@ -96,19 +222,57 @@ public class ShippingServiceBaseHandler {
       String siteId
   ) {
 
-    return shippingServiceHelper.saveChannels(shippingRequest, shippingMethods)
-        .flatMap(channels -> shippingServiceHelper.saveProductTypes(shippingRequest, shippingMethods)
-            .flatMap(productTypes -> shippingServiceBaseHelper.saveCarrierStrings(shippingRequest, shippingMethods)
-                .flatMap(carrierStrings -> shippingMethodResponseConverter
-                    .buildShippingMethodsResponse(
-                        shippingMethods,
-                        siteId,
-                        channels,
-                        productTypes,
-                        carrierStrings,
-                        new ArrayList<>()
-                    ))));
+    return lookupMappings(shippingRequest)
+        .flatMap(mappings -> saveMappings(shippingRequest, shippingMethods, mappings)
+            .as(transactionalOperator::transactional)
+            .flatMap(carrierStrings -> shippingMethodResponseConverter
+                .buildShippingMethodsResponse(
+                    shippingMethods,
+                    siteId,
+                    mappings.getT1(),
+                    mappings.getT2(),
+                    carrierStrings,
+                    new ArrayList<>()
+                )));
+
+  }
+
+
+  // the channel and product type lookups are independent reads, they run concurrently and ahead of the transaction
+  private Mono<Tuple2<List<Channel>, List<ProductType>>> lookupMappings (ShippingMethodPostRequest shippingRequest) {
+
+    return Mono.zip(
+        shippingServiceHelper.findChannels(shippingRequest),
+        shippingServiceHelper.findProductTypes(shippingRequest)
+    );
+  }
+
+
+  private Mono<List<ShippingMethodCarrierString>> saveMappings (
+      ShippingMethodPostRequest shippingRequest,
+      ShippingMethods shippingMethods,
+      Tuple2<List<Channel>, List<ProductType>> mappings
+  ) {
+
+    return shippingServiceHelper.saveChannels(mappings.getT1(), shippingMethods)
+        .then(shippingServiceHelper.saveProductTypes(mappings.getT2(), shippingMethods))
+        .then(shippingServiceBaseHelper.saveCarrierStrings(shippingRequest, shippingMethods));
+  }
+
+
+  /**
+   * Streams the shipping methods of a site, each one emitted as soon as the rules and carrier strings of its chunk are
+   * joined. Enrichment queries are issued per chunk of {@code shipping-method-export.chunk-size} ids, and the next
+   * chunk is only read once the previous one is written, so memory does not grow with the size of the site.
+   */
+  public Flux<ShippingMethodsRuleResponse> streamShippingMethods (String siteId) {
 
+    return shippingMethodRepository.findShippingMethodsBySiteId(siteId)
+        .switchIfEmpty(Mono.error(
+            new NotFoundException(new HttpClientErrorException(HttpStatus.NOT_FOUND), SITEID_NOT_FOUND_CODE, siteId)))
+        .buffer(shippingMethodExportProperties.getChunkSize())
+        // no prefetch, the next chunk is only buffered once the previous one is written
+        .concatMap(chunk -> getShippingMethods(chunk).flatMapIterable(Function.identity()), 0);
   }
 
 
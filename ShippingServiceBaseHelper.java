@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import com.domainname.next.shippingapi.repository.BatchInsertRepository;
 import com.domainname.next.shippingapi.repository.ShippingMethodCarrierStringRepository;
 import lombok.AllArgsConstructor;
 import com.domainname.next.shippingapi.entity.ShippingMethodRule;
@@ -31,6 +32,7 @@ public class ShippingServiceBaseHelper {
   
   private final ShippingMethodPostRequestConverter shippingMethodPostRequestConverter;
   private final ShippingMethodCarrierStringRepository shippingMethodCarrierStringRepository;
+  private final BatchInsertRepository batchInsertRepository;
 
 
   public Mono<List<ShippingMethodsRuleResponse>> getShippingMethodCarrierString(
@@ -63,8 +65,8 @@ public class ShippingServiceBaseHelper {
     return CollectionUtils.isEmpty(shippingRequest.getCarrierStringRecords())
         ? Mono.just(new ArrayList<>())
         : shippingMethodPostRequestConverter.buildCarrierString(shippingRequest, shippingMethods)
-            .flatMap(shippingMethodCarrierString -> shippingMethodCarrierStringRepository
-                .saveAll(shippingMethodCarrierString).collectList());
+            .flatMap(shippingMethodCarrierString -> batchInsertRepository
+                .insertAll(shippingMethodCarrierString).collectList());
   }
 
   public Mono<Boolean> updateCarrierString(ShippingPatchRequest shippingPatchRequest,
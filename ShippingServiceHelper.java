@@ -5,10 +5,10 @@ import com.domainname.next.shippingapi.converter.ShippingMethodPostRequestConver
 import com.domainname.next.shippingapi.entity.Channel;
 import com.domainname.next.shippingapi.entity.ProductType;
 import com.domainname.next.shippingapi.entity.ShippingMethods;
+import com.domainname.next.shippingapi.repository.BatchInsertRepository;
 import com.domainname.next.shippingapi.repository.ChannelRepository;
 import com.domainname.next.shippingapi.repository.ProductTypeRepository;
-import com.domainname.next.shippingapi.repository.ShippingMethodChannelMappingRepository;
-import com.domainname.next.shippingapi.repository.ShippingMethodProductTypeMappingRepository;
+import com.domainname.next.shippingapi.repository.ShippingMethodQueryRepository;
 import com.domainname.next.shippingapi.resources.request.ShippingMethodPostRequest;
 import com.domainname.next.shippingapi.resources.response.rule.ShippingMethodsRuleResponse;
 import com.domainname.next.shippingapi.util.ShippingUtil;
@@ -16,7 +16,12 @@ import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Component
@@ -31,22 +36,34 @@ public class ShippingServiceHelper {
 
   private final ProductTypeRepository productTypeRepository;
 
-  private final ShippingMethodProductTypeMappingRepository shippingMethodProductTypeMappingRepository;
+  private final BatchInsertRepository batchInsertRepository;
 
-  private final ShippingMethodChannelMappingRepository shippingMethodChannelMappingRepository;
+  private final ShippingMethodQueryRepository shippingMethodQueryRepository;
 
 
   public Mono<List<Channel>> saveChannels (ShippingMethodPostRequest shippingRequest, ShippingMethods shippingMethods) {
 
+    return findChannels(shippingRequest)
+        .flatMap(channelConfig -> saveChannels(channelConfig, shippingMethods));
+  }
+
+
+  public Mono<List<Channel>> findChannels (ShippingMethodPostRequest shippingRequest) {
+
     return channelRepository
         .findByChannelNameIn(ShippingUtil.getEnums(
             com.domainname.next.shippingapi.enums.Channel.class,
             shippingRequest.getChannels()
         ))
-        .collectList()
-        .flatMap(channelConfig -> shippingMethodPostRequestConverter.buildChannel(shippingMethods, channelConfig)
-            .flatMap(channelMapping -> shippingMethodChannelMappingRepository.saveAll(channelMapping).collectList())
-            .then(Mono.just(channelConfig)));
+        .collectList();
+  }
+
+
+  public Mono<List<Channel>> saveChannels (List<Channel> channelConfig, ShippingMethods shippingMethods) {
+
+    return shippingMethodPostRequestConverter.buildChannel(shippingMethods, channelConfig)
+        .flatMap(channelMapping -> batchInsertRepository.insertAll(channelMapping).collectList())
+        .then(Mono.just(channelConfig));
   }
 
 
@@ -55,36 +72,91 @@ public class ShippingServiceHelper {
       ShippingMethods shippingMethods
   ) {
 
-    return productTypeRepository.findByProductTypeNameIn(shippingRequest.getProductTypes()).collectList()
-        .flatMap(productTypeConfig -> shippingMethodPostRequestConverter.buildProductType(
-                shippingMethods,
-                productTypeConfig
-            )
-            .flatMap(productTypeMapping -> shippingMethodProductTypeMappingRepository.saveAll(productTypeMapping)
-                .collectList())
-            .then(Mono.just(productTypeConfig)));
+    return findProductTypes(shippingRequest)
+        .flatMap(productTypeConfig -> saveProductTypes(productTypeConfig, shippingMethods));
+  }
+
+
+  public Mono<List<ProductType>> findProductTypes (ShippingMethodPostRequest shippingRequest) {
+
+    return productTypeRepository.findByProductTypeNameIn(shippingRequest.getProductTypes()).collectList();
+  }
+
+
+  public Mono<List<ProductType>> saveProductTypes (List<ProductType> productTypeConfig, ShippingMethods shippingMethods) {
+
+    return shippingMethodPostRequestConverter.buildProductType(shippingMethods, productTypeConfig)
+        .flatMap(productTypeMapping -> batchInsertRepository.insertAll(productTypeMapping).collectList())
+        .then(Mono.just(productTypeConfig));
   }
 
 
   public Mono<List<Channel>> updateChannels (List<String> channels, ShippingMethods shippingMethods) {
 
+    return channelRepository.findChannelByShippingId(shippingMethods.getId()).collectList()
+        .flatMap(currentChannels -> updateChannels(channels, currentChannels, shippingMethods));
+  }
+
+
+  /**
+   * Brings the channel mappings from {@code currentChannels} to {@code channels} with one DELETE for the removed and
+   * one INSERT for the added channels. Nothing is written when both sets are equal.
+   */
+  public Mono<List<Channel>> updateChannels (
+      List<String> channels,
+      Collection<Channel> currentChannels,
+      ShippingMethods shippingMethods
+  ) {
+
     return channelRepository.findByChannelNameIn(channels).collectList()
-        .flatMap(channel -> shippingMethodPostRequestConverter.buildChannel(shippingMethods, channel)
-            .flatMap(channelMapping -> shippingMethodChannelMappingRepository.deleteByShippingMethodId(shippingMethods.getId())
-                .flatMap(deletedMapping -> shippingMethodChannelMappingRepository.saveAll(channelMapping).collectList())
-                .then(Mono.just(channel))));
+        .flatMap(channel -> {
+          Set<Integer> currentIds = ids(currentChannels, Channel::getChannelId);
+          Set<Integer> removedIds = new HashSet<>(currentIds);
+          removedIds.removeAll(ids(channel, Channel::getChannelId));
+          List<Channel> addedChannels = channel.stream()
+              .filter(addedChannel -> !currentIds.contains(addedChannel.getChannelId()))
+              .toList();
+          return shippingMethodQueryRepository.deleteChannelMappings(shippingMethods.getId(), removedIds)
+              .then(addedChannels.isEmpty() ? Mono.empty() : saveChannels(addedChannels, shippingMethods))
+              .then(Mono.just(channel));
+        });
   }
 
 
   public Mono<List<ProductType>> updateProductTypes (List<String> productTypes, ShippingMethods shippingMethods) {
 
+    return productTypeRepository.findProductTypeByShippingId(shippingMethods.getId()).collectList()
+        .flatMap(currentProductTypes -> updateProductTypes(productTypes, currentProductTypes, shippingMethods));
+  }
+
+
+  /**
+   * Product type counterpart of {@link #updateChannels(List, Collection, ShippingMethods)}.
+   */
+  public Mono<List<ProductType>> updateProductTypes (
+      List<String> productTypes,
+      Collection<ProductType> currentProductTypes,
+      ShippingMethods shippingMethods
+  ) {
+
     return productTypeRepository.findByProductTypeNameIn(productTypes).collectList()
-        .flatMap(productType -> shippingMethodPostRequestConverter.buildProductType(shippingMethods, productType)
-            .flatMap(productTypeMapping -> shippingMethodProductTypeMappingRepository.deleteByShippingMethodId(
-                    shippingMethods.getId())
-                .flatMap(deletedMapping -> shippingMethodProductTypeMappingRepository.saveAll(productTypeMapping)
-                    .collectList())
-                .then(Mono.just(productType))));
+        .flatMap(productType -> {
+          Set<Integer> currentIds = ids(currentProductTypes, ProductType::getProductTypeId);
+          Set<Integer> removedIds = new HashSet<>(currentIds);
+          removedIds.removeAll(ids(productType, ProductType::getProductTypeId));
+          List<ProductType> addedProductTypes = productType.stream()
+              .filter(addedProductType -> !currentIds.contains(addedProductType.getProductTypeId()))
+              .toList();
+          return shippingMethodQueryRepository.deleteProductTypeMappings(shippingMethods.getId(), removedIds)
+              .then(addedProductTypes.isEmpty() ? Mono.empty() : saveProductTypes(addedProductTypes, shippingMethods))
+              .then(Mono.just(productType));
+        });
+  }
+
+
+  private static <T> Set<Integer> ids(Collection<T> values, Function<T, Integer> id) {
+
+    return values.stream().map(id).collect(Collectors.toSet());
   }
 
 
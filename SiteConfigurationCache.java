@@ -0,0 +1,147 @@
+package com.domainname.next.shippingapi.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+
+import com.domainname.next.shippingapi.config.cache.SiteConfigurationCacheProperties;
+import com.domainname.next.shippingapi.entity.SiteId;
+import com.domainname.next.shippingapi.enums.FulfillmentType;
+import com.domainname.next.shippingapi.repository.FulfillmentMethodsRepository;
+import com.domainname.next.shippingapi.repository.SiteIdRepository;
+import com.domainname.next.shippingapi.resources.dto.SiteConfigurationSnapshot;
+import com.domainname.next.shippingapi.util.BatchLookupScope;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps one {@link SiteConfigurationSnapshot} per site name in memory so that the options endpoints do not hit
+ * site_id and site_fulfillment_configuration on every request.
+ *
+ * Snapshots expire once their TTL has elapsed, unknown site names are cached as empty for a shorter TTL and errors
+ * are never cached. At most {@code max-entries} sites are kept, the least valuable entry being evicted beyond that,
+ * so made-up site names cannot keep real sites out of the cache. Writes through {@link FulfillmentService}
+ * invalidate the entry of the affected site on this instance, other instances pick the change up when their TTL
+ * elapses.
+ */
+@Component
+@Slf4j
+public class SiteConfigurationCache {
+
+  private static final String LOOKUP = "site-configuration";
+  private static final List<String> FULFILLMENT_TYPES = Stream.of(FulfillmentType.values())
+      .map(FulfillmentType::getValue)
+      .toList();
+
+  private final SiteIdRepository siteIdRepository;
+  private final FulfillmentMethodsRepository fulfillmentMethodsRepository;
+  private final FulfillmentOptionsServiceHelper fulfillmentOptionsServiceHelper;
+  private final SiteConfigurationCacheProperties properties;
+
+  private final AsyncCache<String, Optional<SiteConfigurationSnapshot>> snapshots;
+  private final AtomicLong version = new AtomicLong();
+
+  public SiteConfigurationCache(SiteIdRepository siteIdRepository,
+      FulfillmentMethodsRepository fulfillmentMethodsRepository,
+      FulfillmentOptionsServiceHelper fulfillmentOptionsServiceHelper,
+      SiteConfigurationCacheProperties properties) {
+    this.siteIdRepository = siteIdRepository;
+    this.fulfillmentMethodsRepository = fulfillmentMethodsRepository;
+    this.fulfillmentOptionsServiceHelper = fulfillmentOptionsServiceHelper;
+    this.properties = properties;
+    this.snapshots = Caffeine.newBuilder()
+        .maximumSize(properties.getMaxEntries())
+        .expireAfter(new SnapshotExpiry(Duration.ofMillis(properties.getTtlMillis()),
+            Duration.ofMillis(properties.getNegativeTtlMillis())))
+        .buildAsync();
+  }
+
+  public Mono<SiteConfigurationSnapshot> getSiteConfiguration(String siteName) {
+    return BatchLookupScope.shared(LOOKUP, siteName, () -> siteConfiguration(siteName));
+  }
+
+  private Mono<SiteConfigurationSnapshot> siteConfiguration(String siteName) {
+    if (!properties.isEnabled()) {
+      return loadSiteConfiguration(siteName);
+    }
+    // the load is shared by every caller of the site, a cancelling caller only drops its own dependent future
+    return Mono.fromFuture(() -> snapshots.get(siteName, (name, executor) -> loadSiteConfiguration(name)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .toFuture())
+            .thenApply(Function.identity()))
+        .flatMap(Mono::justOrEmpty);
+  }
+
+  /**
+   * Whether {@code siteName} is a site this instance has currently loaded, without loading it. Always false when
+   * the cache is disabled.
+   */
+  public boolean isKnownSite(String siteName) {
+    CompletableFuture<Optional<SiteConfigurationSnapshot>> snapshot = snapshots.getIfPresent(siteName);
+    return snapshot != null && snapshot.isDone() && !snapshot.isCompletedExceptionally()
+        && snapshot.join().isPresent();
+  }
+
+  public void invalidate(String siteName) {
+    snapshots.synchronous().invalidate(siteName);
+    log.debug("Invalidated site configuration snapshot for siteId : {}", siteName);
+  }
+
+  public void invalidateAll() {
+    snapshots.synchronous().invalidateAll();
+  }
+
+  private Mono<SiteConfigurationSnapshot> loadSiteConfiguration(String siteName) {
+    return siteIdRepository.findByName(siteName)
+        .doFirst(() -> log.debug("Loading site configuration snapshot for siteId : {}", siteName))
+        .flatMap(siteId -> fulfillmentMethodsRepository.findBySiteIdAndFulfilmentType(siteId.getId(), FULFILLMENT_TYPES)
+            .filter(fulfillmentOption -> isFulfillmentEnabled(siteId, fulfillmentOption.getFulfillmentType()))
+            .collectList()
+            .map(fulfillmentOptionsServiceHelper::prepareFulfillmentOptions)
+            .map(fulfillmentOptions -> new SiteConfigurationSnapshot(version.incrementAndGet(), siteId, fulfillmentOptions)));
+  }
+
+  private static boolean isFulfillmentEnabled(SiteId siteId, String fulfillmentType) {
+    return siteId.getFulfillmentMethodsEnabled().contains(fulfillmentType);
+  }
+
+  // known sites live for the TTL, unknown ones for the negative TTL, both counted from the load
+  private static final class SnapshotExpiry implements Expiry<String, Optional<SiteConfigurationSnapshot>> {
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    private SnapshotExpiry(Duration ttl, Duration negativeTtl) {
+      this.ttlNanos = ttl.toNanos();
+      this.negativeTtlNanos = negativeTtl.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(String siteName, Optional<SiteConfigurationSnapshot> snapshot, long currentTime) {
+      return snapshot.isPresent() ? ttlNanos : negativeTtlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(String siteName, Optional<SiteConfigurationSnapshot> snapshot, long currentTime,
+        long currentDuration) {
+      return expireAfterCreate(siteName, snapshot, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String siteName, Optional<SiteConfigurationSnapshot> snapshot, long currentTime,
+        long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
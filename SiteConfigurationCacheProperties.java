@@ -0,0 +1,16 @@
+package com.domainname.next.shippingapi.config.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "site-configuration-cache")
+public class SiteConfigurationCacheProperties {
+
+  private boolean enabled = true;
+  private Long ttlMillis = 300000L;
+  private Long negativeTtlMillis = 30000L;
+  private Integer maxEntries = 256;
+}
@@ -0,0 +1,140 @@
+package com.domainname.next.shippingapi.service;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.domainname.next.shippingapi.config.cache.SiteConfigurationCacheProperties;
+import com.domainname.next.shippingapi.entity.FulfillmentOption;
+import com.domainname.next.shippingapi.entity.SiteId;
+import com.domainname.next.shippingapi.enums.FulfillmentType;
+import com.domainname.next.shippingapi.repository.FulfillmentMethodsRepository;
+import com.domainname.next.shippingapi.repository.SiteIdRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+class SiteConfigurationCacheTest {
+
+  private static final String SITE_NAME = "adidas-GB";
+
+  @Mock
+  SiteIdRepository siteIdRepository;
+
+  @Mock
+  FulfillmentMethodsRepository fulfillmentMethodsRepository;
+
+  @Mock
+  FulfillmentOptionsServiceHelper fulfillmentOptionsServiceHelper;
+
+  SiteConfigurationCache siteConfigurationCache;
+
+  @BeforeEach
+  void setup() {
+    SiteConfigurationCacheProperties properties = new SiteConfigurationCacheProperties();
+    siteConfigurationCache = new SiteConfigurationCache(siteIdRepository, fulfillmentMethodsRepository,
+        fulfillmentOptionsServiceHelper, properties);
+    Mockito.when(fulfillmentOptionsServiceHelper.prepareFulfillmentOptions(Mockito.any())).thenCallRealMethod();
+  }
+
+  @Test
+  void testSnapshotIsLoadedOnce() {
+    mockSite();
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME))
+        .assertNext(snapshot -> {
+          Assertions.assertEquals(1, snapshot.getSiteId().getId());
+          Assertions.assertEquals(List.of(FulfillmentType.HOMEDELIVERY.getValue()),
+              List.copyOf(snapshot.getEnabledFulfillmentOptions().keySet()));
+        })
+        .verifyComplete();
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME))
+        .expectNextCount(1)
+        .verifyComplete();
+    Mockito.verify(siteIdRepository, Mockito.times(1)).findByName(SITE_NAME);
+    Mockito.verify(fulfillmentMethodsRepository, Mockito.times(1)).findBySiteIdAndFulfilmentType(Mockito.any(), Mockito.any());
+  }
+
+  @Test
+  void testInvalidateReloadsSnapshot() {
+    mockSite();
+    long firstVersion = siteConfigurationCache.getSiteConfiguration(SITE_NAME).block().getVersion();
+    siteConfigurationCache.invalidate(SITE_NAME);
+    long secondVersion = siteConfigurationCache.getSiteConfiguration(SITE_NAME).block().getVersion();
+    Assertions.assertTrue(secondVersion > firstVersion);
+    Mockito.verify(siteIdRepository, Mockito.times(2)).findByName(SITE_NAME);
+  }
+
+  @Test
+  void testOnlyLoadedSitesAreKnown() {
+    mockSite();
+    Mockito.when(siteIdRepository.findByName("made-up")).thenReturn(Mono.empty());
+    Assertions.assertFalse(siteConfigurationCache.isKnownSite(SITE_NAME));
+
+    siteConfigurationCache.getSiteConfiguration(SITE_NAME).block();
+    siteConfigurationCache.getSiteConfiguration("made-up").block();
+
+    Assertions.assertTrue(siteConfigurationCache.isKnownSite(SITE_NAME));
+    Assertions.assertFalse(siteConfigurationCache.isKnownSite("made-up"));
+  }
+
+  @Test
+  void testUnknownSiteIsCachedAsEmpty() {
+    Mockito.when(siteIdRepository.findByName(SITE_NAME)).thenReturn(Mono.empty());
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME)).verifyComplete();
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME)).verifyComplete();
+    Mockito.verify(siteIdRepository, Mockito.times(1)).findByName(SITE_NAME);
+  }
+
+  @Test
+  void testErrorIsNotCached() {
+    Mockito.when(siteIdRepository.findByName(SITE_NAME)).thenReturn(Mono.error(new IllegalStateException()));
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME)).verifyError(IllegalStateException.class);
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME)).verifyError(IllegalStateException.class);
+    Mockito.verify(siteIdRepository, Mockito.times(2)).findByName(SITE_NAME);
+  }
+
+  @Test
+  void testUnknownSiteExpiresAfterNegativeTtl() throws InterruptedException {
+    SiteConfigurationCacheProperties properties = new SiteConfigurationCacheProperties();
+    properties.setNegativeTtlMillis(1L);
+    siteConfigurationCache = new SiteConfigurationCache(siteIdRepository, fulfillmentMethodsRepository,
+        fulfillmentOptionsServiceHelper, properties);
+    Mockito.when(siteIdRepository.findByName(SITE_NAME)).thenReturn(Mono.empty());
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME)).verifyComplete();
+    Thread.sleep(20);
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME)).verifyComplete();
+    Mockito.verify(siteIdRepository, Mockito.times(2)).findByName(SITE_NAME);
+  }
+
+  @Test
+  void testSiteIsCachedAfterManyUnknownSites() {
+    for (int unknown = 0; unknown < 300; unknown++) {
+      Mockito.when(siteIdRepository.findByName("unknown-" + unknown)).thenReturn(Mono.empty());
+      StepVerifier.create(siteConfigurationCache.getSiteConfiguration("unknown-" + unknown)).verifyComplete();
+    }
+    mockSite();
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME)).expectNextCount(1).verifyComplete();
+    StepVerifier.create(siteConfigurationCache.getSiteConfiguration(SITE_NAME)).expectNextCount(1).verifyComplete();
+    Mockito.verify(siteIdRepository, Mockito.times(1)).findByName(SITE_NAME);
+  }
+
+  private void mockSite() {
+    SiteId siteId = Mockito.mock(SiteId.class);
+    Mockito.when(siteId.getId()).thenReturn(1);
+    Mockito.when(siteId.getName()).thenReturn(SITE_NAME);
+    Mockito.when(siteId.getFulfillmentMethodsEnabled()).thenReturn(List.of(FulfillmentType.HOMEDELIVERY.getValue()));
+    Mockito.when(siteIdRepository.findByName(SITE_NAME)).thenReturn(Mono.just(siteId));
+    Mockito.when(fulfillmentMethodsRepository.findBySiteIdAndFulfilmentType(Mockito.eq(1), Mockito.any()))
+        .thenReturn(Flux.just(
+            FulfillmentOption.builder().fulfillmentType(FulfillmentType.HOMEDELIVERY.getValue()).build(),
+            FulfillmentOption.builder().fulfillmentType(FulfillmentType.PUDO.getValue()).build()));
+  }
+}
@@ -0,0 +1,42 @@
+package com.domainname.next.shippingapi.resources.dto;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.domainname.next.shippingapi.entity.FulfillmentOption;
+import com.domainname.next.shippingapi.entity.SiteId;
+
+import lombok.Getter;
+
+/**
+ * Immutable view of a site's configuration as it is needed on the options path: the site row itself and its
+ * enabled fulfillment options, keyed by fulfillment type and ordered by configured position.
+ */
+@Getter
+public final class SiteConfigurationSnapshot {
+
+  private final long version;
+  private final Instant loadedAt;
+  private final SiteId siteId;
+  private final Map<String, FulfillmentOption> enabledFulfillmentOptions;
+
+  public SiteConfigurationSnapshot(long version, SiteId siteId, Map<String, FulfillmentOption> enabledFulfillmentOptions) {
+    this.version = version;
+    this.loadedAt = Instant.now();
+    this.siteId = siteId;
+    this.enabledFulfillmentOptions = Collections.unmodifiableMap(new LinkedHashMap<>(enabledFulfillmentOptions));
+  }
+
+  public Map<String, FulfillmentOption> getEnabledFulfillmentOptions(Collection<String> fulfillmentTypes) {
+    Map<String, FulfillmentOption> selected = new LinkedHashMap<>();
+    enabledFulfillmentOptions.forEach((fulfillmentType, fulfillmentOption) -> {
+      if (fulfillmentTypes.contains(fulfillmentType)) {
+        selected.put(fulfillmentType, fulfillmentOption);
+      }
+    });
+    return selected;
+  }
+}